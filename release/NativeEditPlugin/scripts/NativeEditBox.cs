@@ -33,6 +33,7 @@
 
 using System;
 using System.Collections;
+using System.Collections.Generic;
 using UnityEngine;
 using UnityEngine.Events;
 using UnityEngine.UI;
@@ -63,13 +64,32 @@ public class NativeEditBox : PluginMsgReceiver
         Go
     }
 
+    /// <summary>
+    ///     How the native text reaches inputField.text while editing on Android. Full sends the whole text on
+    ///     every edit, Throttled at most once per textChangeIntervalMs, Delta only the edited range, Shared reads
+    ///     it from a buffer the plugin writes to. None leaves inputField.text alone until editing ends.
+    /// </summary>
+    public enum TextChangeMode
+    {
+        Full,
+        Throttled,
+        Delta,
+        None,
+        Shared
+    }
+
     public float androidUpdateDeltaTime = 0.15f;
     public bool iOSWithDoneButton = true;
     public bool useInputFieldFont;
     public bool clearFocusOnReturnPressed = true;
     public ReturnKeyType singleLineReturnKeyType;
+    public TextChangeMode textChangeMode = TextChangeMode.Full;
+    public int textChangeIntervalMs = 100;
 
     public event Action returnPressed;
+    public event Action<int> keyboardOffsetChanged; // Android, with PluginMsgHandler.SetKeyboardAvoidance mode 2
+    public event Action<int> keyboardHeightChanged; // Android, on the box that last had focus
+    public event Action<string, List<string>> suggestionsReceived; // Android, query and matching words
     public UnityEvent onReturnPressed; // only invoke on iOS & Android
     public UnityEvent onBeginEdit; // only invoke on iOS & Android
 
@@ -78,7 +98,10 @@ public class NativeEditBox : PluginMsgReceiver
     private bool _focusOnCreate;
     private bool _visibleOnCreate = true;
     private bool _isNowEditing;
+    private bool _hasHardwareKeyboard; // checked when editing begins
     private float _fakeTimer = 0f;
+    private string _nativeText = string.Empty; // the plugin's text as rebuilt from TextDelta
+    private int[] _suggestionsOnCreate;
 
     private EditBoxConfig _mConfig;
     private Camera _uiCam;
@@ -94,6 +117,11 @@ public class NativeEditBox : PluginMsgReceiver
     private const string MSG_TEXT_CHANGE = "TextChange";
     private const string MSG_TEXT_BEGIN_EDIT = "TextBeginEdit";
     private const string MSG_TEXT_END_EDIT = "TextEndEdit";
+    private const string MSG_TEXT_DELTA = "TextDelta";
+    private const string MSG_TEXT_CHANGE_SHARED = "TextChangeShared";
+    private const string MSG_KEYBOARD_OFFSET = "KeyboardOffset";
+    private const string MSG_KEYBOARD_HEIGHT_CHANGED = "KeyboardHeightChanged";
+    private const string MSG_SUGGESTIONS = "Suggestions";
 
     // to fix bug Some keys 'back' & 'enter' are eaten by unity and never arrive at plugin
     private const string MSG_ANDROID_KEY_DOWN = "AndroidKeyDown";
@@ -274,16 +302,48 @@ public class NativeEditBox : PluginMsgReceiver
         if(msg.Equals(MSG_TEXT_BEGIN_EDIT))
         {
             _isNowEditing = true;
+            _hasHardwareKeyboard = PluginMsgHandler.HasHardwareKeyboard();
             onBeginEdit?.Invoke();
         }
         else if(msg.Equals(MSG_TEXT_CHANGE))
         {
             inputField.text = jsonMsg.GetString("text");
         }
+        else if(msg.Equals(MSG_TEXT_DELTA))
+        {
+            // Applied to the plugin's text, inputField.text may already hold a SetText the plugin has not echoed.
+            var start = Mathf.Clamp(jsonMsg.GetInt("start"), 0, _nativeText.Length);
+            var end = Mathf.Clamp(start + jsonMsg.GetInt("before"), start, _nativeText.Length);
+            _nativeText = _nativeText.Substring(0, start) + jsonMsg.GetString("inserted") + _nativeText.Substring(end);
+            inputField.text = _nativeText;
+        }
+        else if(msg.Equals(MSG_TEXT_CHANGE_SHARED))
+        {
+            inputField.text = PluginMsgHandler.GetInstanceForReceiver(this)
+                .ReadSharedText(receiverId, jsonMsg.GetBool("reallocated"));
+        }
         else if(msg.Equals(MSG_TEXT_END_EDIT))
         {
             _isNowEditing = false;
-            inputField.text = jsonMsg.GetString("text");
+            _nativeText = jsonMsg.GetString("text");
+            inputField.text = _nativeText;
+        }
+        else if(msg.Equals(MSG_KEYBOARD_OFFSET))
+        {
+            keyboardOffsetChanged?.Invoke(jsonMsg.GetInt("offset"));
+        }
+        else if(msg.Equals(MSG_KEYBOARD_HEIGHT_CHANGED))
+        {
+            keyboardHeightChanged?.Invoke(jsonMsg.GetInt("height"));
+        }
+        else if(msg.Equals(MSG_SUGGESTIONS))
+        {
+            var items = new List<string>();
+            var itemList = jsonMsg.KeyExist("items") ? jsonMsg["items"] as List<object> : null;
+            if(itemList != null)
+                foreach(var item in itemList)
+                    items.Add(item as string ?? string.Empty);
+            suggestionsReceived?.Invoke(jsonMsg.GetString("query"), items);
         }
         else if(msg.Equals(MSG_RETURN_PRESSED))
         {
@@ -333,7 +393,9 @@ public class NativeEditBox : PluginMsgReceiver
             ["placeHolderColor_g"] = _mConfig.placeHolderColor.g,
             ["placeHolderColor_b"] = _mConfig.placeHolderColor.b,
             ["placeHolderColor_a"] = _mConfig.placeHolderColor.a,
-            ["multiline"] = _mConfig.multiline
+            ["multiline"] = _mConfig.multiline,
+            ["textChangeMode"] = textChangeMode.ToString(),
+            ["textChangeInterval"] = textChangeIntervalMs
         };
         switch(singleLineReturnKeyType)
         {
@@ -363,6 +425,9 @@ public class NativeEditBox : PluginMsgReceiver
 
         if(_focusOnCreate)
             SetFocus(true);
+
+        if(_suggestionsOnCreate != null)
+            SetSuggestions(_suggestionsOnCreate[0], _suggestionsOnCreate[1], _suggestionsOnCreate[2]);
     }
 
     private void SetTextNative(string newText)
@@ -461,6 +526,22 @@ public class NativeEditBox : PluginMsgReceiver
         visible = bVisible;
     }
 
+    /// <summary>
+    ///     Android only: sends suggestionsReceived with up to maxResults words of the index loaded by
+    ///     PluginMsgHandler.LoadSuggestionIndex that start like the word at the cursor, at most once per intervalMs.
+    ///     indexId 0 turns them off.
+    /// </summary>
+    public void SetSuggestions(int indexId, int maxResults, int intervalMs)
+    {
+        if(!_hasNativeEditCreated)
+        {
+            _suggestionsOnCreate = new[] {indexId, maxResults, intervalMs};
+            return;
+        }
+
+        PluginMsgHandler.GetInstanceForReceiver(this).SetSuggestions(receiverId, indexId, maxResults, intervalMs);
+    }
+
 #if UNITY_ANDROID && !UNITY_EDITOR
 	private void ForceSendKeydown_Android(string key)
 	{
@@ -472,28 +553,25 @@ public class NativeEditBox : PluginMsgReceiver
 		SendPluginMsg(jsonMsg);
 	}
 
+	// The plugin takes the soft keyboard's keys before Unity sees them. A hardware keyboard's keys still reach Unity
+	// first, so backspace, enter and the digits, which the EditText would not get, are sent on.
 	private void UpdateForceKeyeventForAndroid()
 	{
-		if (Input.anyKeyDown)
+		if (!_isNowEditing || !_hasHardwareKeyboard || !Input.anyKeyDown)
+			return;
+
+		if (Input.GetKeyDown(KeyCode.Backspace))
+		{
+			ForceSendKeydown_Android("backspace");
+			return;
+		}
+
+		foreach(char c in Input.inputString)
 		{
-			if (Input.GetKeyDown(KeyCode.Backspace))
-			{
-				ForceSendKeydown_Android("backspace");
-			}
-			else
-			{
-				foreach(char c in Input.inputString)
-				{
-					if (c == '\n')
-					{
-						ForceSendKeydown_Android("enter");
-					}
-					else
-					{
-						ForceSendKeydown_Android(Input.inputString);
-					}
-				}
-			}
+			if (c == '\n' || c == '\r')
+				ForceSendKeydown_Android("enter");
+			else if (c >= '0' && c <= '9')
+				ForceSendKeydown_Android(c.ToString());
 		}
 	}
 #endif
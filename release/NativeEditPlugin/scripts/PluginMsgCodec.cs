@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2015 Kyungmin Bang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+using System;
+using System.Globalization;
+using System.IO;
+using System.Text;
+
+/// <summary>
+///     Binary form of the messages sent to the Android plugin, laid out as MsgCodec.java reads them.
+///     Used when PluginMsgHandler.protocol is PROTOCOL_BINARY.
+/// </summary>
+public static class PluginMsgCodec
+{
+    private const byte OP_CREATE = 1;
+    private const byte OP_REMOVE = 2;
+    private const byte OP_SET_TEXT = 3;
+    private const byte OP_SET_RECT = 4;
+    private const byte OP_SET_TEXTSIZE = 5;
+    private const byte OP_SET_FOCUS = 6;
+    private const byte OP_SET_VISIBLE = 7;
+    private const byte OP_REGISTER_STYLE = 9;
+    private const byte OP_CREATE_STYLED = 10;
+    private const byte OP_REPLACE_TEXT = 11;
+    private const byte OP_SET_TEXT_CHUNKED = 12;
+
+    // Index tables of the enum-like CreateEdit fields, in the order of MsgCodec.java.
+    private static readonly string[] CONTENT_TYPES =
+    {
+        "Standard", "Autocorrected", "IntegerNumber", "DecimalNumber", "Alphanumeric", "Name", "EmailAddress",
+        "Password", "Pin", "Custom"
+    };
+
+    private static readonly string[] KEYBOARD_TYPES =
+    {
+        "Default", "ASCIICapable", "NumbersAndPunctuation", "URL", "NumberPad", "PhonePad", "NamePhonePad",
+        "EmailAddress"
+    };
+
+    private static readonly string[] INPUT_TYPES = {"Standard", "AutoCorrect", "Password"};
+    private static readonly string[] RETURN_KEY_TYPES = {"Default", "Next", "Done", "Send", "Go"};
+
+    private static readonly string[] ALIGNMENTS =
+    {
+        "UpperLeft", "UpperCenter", "UpperRight", "MiddleLeft", "MiddleCenter", "MiddleRight", "LowerLeft",
+        "LowerCenter", "LowerRight"
+    };
+
+    private static readonly string[] TEXT_CHANGE_MODES = {"Full", "Throttled", "Delta", "None", "Shared"};
+    private static readonly string[] CHARACTER_LIMIT_UNITS = {"CodeUnits", "CodePoints"};
+
+    // Keys a CreateEdit with a styleId can set over the style, indexed by the OVERRIDE_* bits of MsgCodec.java.
+    private static readonly string[] OVERRIDE_KEYS =
+    {
+        "characterLimit", "textColor_r", "backColor_r", "placeHolderColor_r", "fontSize", "multiline", "contentType",
+        "keyboardType", "inputType", "return_key_type", "align", "placeHolder", "font", "textChangeMode",
+        "textChangeInterval", "characterLimitUnit", "validationRule"
+    };
+
+    private static readonly Encoding UTF8 = new UTF8Encoding(false);
+
+    /// <summary>
+    ///     Returns null for a message without an opcode (e.g. AndroidKeyDown), which is then sent as JSON.
+    /// </summary>
+    public static byte[] Encode(JsonObject jsonMsg)
+    {
+        var stream = new MemoryStream(64);
+        var writer = new BinaryWriter(stream);
+        switch(jsonMsg.GetString("msg"))
+        {
+            case "CreateEdit":
+                if (jsonMsg.KeyExist("styleId"))
+                {
+                    WriteCreateStyled(writer, jsonMsg);
+                }
+                else
+                {
+                    writer.Write(OP_CREATE);
+                    WriteCreateFields(writer, jsonMsg);
+                }
+                break;
+            case "CreateEditStyled":
+                if (!jsonMsg.KeyExist("styleId"))
+                    return null;
+                WriteCreateStyled(writer, jsonMsg);
+                break;
+            case "RegisterStyle":
+                writer.Write(OP_REGISTER_STYLE);
+                writer.Write(GetInt(jsonMsg, "styleId"));
+                WriteCreateFields(writer, jsonMsg);
+                break;
+            case "RemoveEdit":
+                writer.Write(OP_REMOVE);
+                break;
+            case "SetText":
+                writer.Write(OP_SET_TEXT);
+                WriteString(writer, jsonMsg.GetString("text"));
+                break;
+            case "SetRect":
+                writer.Write(OP_SET_RECT);
+                WriteRect(writer, jsonMsg);
+                break;
+            case "SetTextSize":
+                writer.Write(OP_SET_TEXTSIZE);
+                writer.Write(GetFloat(jsonMsg, "fontSize"));
+                break;
+            case "SetFocus":
+                writer.Write(OP_SET_FOCUS);
+                writer.Write(jsonMsg.GetBool("isFocus"));
+                break;
+            case "SetVisible":
+                writer.Write(OP_SET_VISIBLE);
+                writer.Write(jsonMsg.GetBool("isVisible"));
+                break;
+            case "ReplaceText":
+                writer.Write(OP_REPLACE_TEXT);
+                writer.Write(GetInt(jsonMsg, "start"));
+                writer.Write(GetInt(jsonMsg, "end"));
+                WriteString(writer, jsonMsg.GetString("text"));
+                break;
+            case "SetTextChunked":
+                writer.Write(OP_SET_TEXT_CHUNKED);
+                writer.Write(GetInt(jsonMsg, "chunkSize"));
+                WriteString(writer, jsonMsg.GetString("text"));
+                break;
+            default:
+                return null;
+        }
+
+        writer.Flush();
+        return stream.ToArray();
+    }
+
+    /// <summary>
+    ///     Frames encoded messages for SendUnityBinaryBulkMsgToPlugin: a count, then senderId, length and bytes of each.
+    /// </summary>
+    public static byte[] EncodeBulk(int[] senderIds, byte[][] msgs)
+    {
+        var stream = new MemoryStream(256);
+        var writer = new BinaryWriter(stream);
+        writer.Write(msgs.Length);
+        for (var i = 0; i < msgs.Length; i++)
+        {
+            writer.Write(senderIds[i]);
+            writer.Write(msgs[i].Length);
+            writer.Write(msgs[i]);
+        }
+
+        writer.Flush();
+        return stream.ToArray();
+    }
+
+    private static void WriteCreateFields(BinaryWriter writer, JsonObject jsonMsg)
+    {
+        WriteRect(writer, jsonMsg);
+        writer.Write(GetInt(jsonMsg, "characterLimit"));
+        writer.Write(GetColor(jsonMsg, "textColor"));
+        writer.Write(GetColor(jsonMsg, "backColor"));
+        writer.Write(GetColor(jsonMsg, "placeHolderColor"));
+        writer.Write(GetFloat(jsonMsg, "fontSize"));
+        writer.Write(jsonMsg.GetBool("multiline"));
+        writer.Write(IndexOf(CONTENT_TYPES, jsonMsg.GetString("contentType")));
+        writer.Write(IndexOf(KEYBOARD_TYPES, jsonMsg.GetString("keyboardType")));
+        writer.Write(IndexOf(INPUT_TYPES, jsonMsg.GetString("inputType")));
+        writer.Write(IndexOf(RETURN_KEY_TYPES, jsonMsg.GetString("return_key_type")));
+        writer.Write(IndexOf(ALIGNMENTS, jsonMsg.GetString("align")));
+        WriteString(writer, jsonMsg.GetString("placeHolder"));
+        WriteString(writer, jsonMsg.GetString("font"));
+        writer.Write(IndexOf(TEXT_CHANGE_MODES, jsonMsg.GetString("textChangeMode")));
+        writer.Write(GetInt(jsonMsg, "textChangeInterval"));
+        writer.Write(IndexOf(CHARACTER_LIMIT_UNITS, jsonMsg.GetString("characterLimitUnit")));
+        writer.Write(GetInt(jsonMsg, "validationRule"));
+    }
+
+    // The rect, then only the keys present in jsonMsg, in the order of the OP_CREATE fields.
+    private static void WriteCreateStyled(BinaryWriter writer, JsonObject jsonMsg)
+    {
+        writer.Write(OP_CREATE_STYLED);
+        writer.Write(GetInt(jsonMsg, "styleId"));
+        WriteRect(writer, jsonMsg);
+        var overrides = 0;
+        for (var i = 0; i < OVERRIDE_KEYS.Length; i++)
+        {
+            if (jsonMsg.KeyExist(OVERRIDE_KEYS[i]))
+                overrides |= 1 << i;
+        }
+        writer.Write(overrides);
+
+        if (jsonMsg.KeyExist("characterLimit"))
+            writer.Write(GetInt(jsonMsg, "characterLimit"));
+        if (jsonMsg.KeyExist("textColor_r"))
+            writer.Write(GetColor(jsonMsg, "textColor"));
+        if (jsonMsg.KeyExist("backColor_r"))
+            writer.Write(GetColor(jsonMsg, "backColor"));
+        if (jsonMsg.KeyExist("placeHolderColor_r"))
+            writer.Write(GetColor(jsonMsg, "placeHolderColor"));
+        if (jsonMsg.KeyExist("fontSize"))
+            writer.Write(GetFloat(jsonMsg, "fontSize"));
+        if (jsonMsg.KeyExist("multiline"))
+            writer.Write(jsonMsg.GetBool("multiline"));
+        if (jsonMsg.KeyExist("contentType"))
+            writer.Write(IndexOf(CONTENT_TYPES, jsonMsg.GetString("contentType")));
+        if (jsonMsg.KeyExist("keyboardType"))
+            writer.Write(IndexOf(KEYBOARD_TYPES, jsonMsg.GetString("keyboardType")));
+        if (jsonMsg.KeyExist("inputType"))
+            writer.Write(IndexOf(INPUT_TYPES, jsonMsg.GetString("inputType")));
+        if (jsonMsg.KeyExist("return_key_type"))
+            writer.Write(IndexOf(RETURN_KEY_TYPES, jsonMsg.GetString("return_key_type")));
+        if (jsonMsg.KeyExist("align"))
+            writer.Write(IndexOf(ALIGNMENTS, jsonMsg.GetString("align")));
+        if (jsonMsg.KeyExist("placeHolder"))
+            WriteString(writer, jsonMsg.GetString("placeHolder"));
+        if (jsonMsg.KeyExist("font"))
+            WriteString(writer, jsonMsg.GetString("font"));
+        if (jsonMsg.KeyExist("textChangeMode"))
+            writer.Write(IndexOf(TEXT_CHANGE_MODES, jsonMsg.GetString("textChangeMode")));
+        if (jsonMsg.KeyExist("textChangeInterval"))
+            writer.Write(GetInt(jsonMsg, "textChangeInterval"));
+        if (jsonMsg.KeyExist("characterLimitUnit"))
+            writer.Write(IndexOf(CHARACTER_LIMIT_UNITS, jsonMsg.GetString("characterLimitUnit")));
+        if (jsonMsg.KeyExist("validationRule"))
+            writer.Write(GetInt(jsonMsg, "validationRule"));
+    }
+
+    private static void WriteRect(BinaryWriter writer, JsonObject jsonMsg)
+    {
+        writer.Write(GetFloat(jsonMsg, "x"));
+        writer.Write(GetFloat(jsonMsg, "y"));
+        writer.Write(GetFloat(jsonMsg, "width"));
+        writer.Write(GetFloat(jsonMsg, "height"));
+    }
+
+    // BinaryWriter.Write(string) prefixes a 7-bit encoded length, the plugin reads an int32 byte length.
+    private static void WriteString(BinaryWriter writer, string str)
+    {
+        var bytes = UTF8.GetBytes(str ?? string.Empty);
+        writer.Write(bytes.Length);
+        writer.Write(bytes);
+    }
+
+    // Packed like android.graphics.Color.argb from the _r, _g, _b, _a channels of the JSON message.
+    private static int GetColor(JsonObject jsonMsg, string name)
+    {
+        var r = (int) (255.0f * GetFloat(jsonMsg, name + "_r"));
+        var g = (int) (255.0f * GetFloat(jsonMsg, name + "_g"));
+        var b = (int) (255.0f * GetFloat(jsonMsg, name + "_b"));
+        var a = (int) (255.0f * GetFloat(jsonMsg, name + "_a"));
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    // JsonObject.GetFloat goes through ToString, which depends on the current culture.
+    private static float GetFloat(JsonObject jsonMsg, string key)
+    {
+        return jsonMsg.KeyExist(key) ? Convert.ToSingle(jsonMsg[key], CultureInfo.InvariantCulture) : 0f;
+    }
+
+    private static int GetInt(JsonObject jsonMsg, string key)
+    {
+        return jsonMsg.KeyExist(key) ? Convert.ToInt32(jsonMsg[key], CultureInfo.InvariantCulture) : 0;
+    }
+
+    private static byte IndexOf(string[] table, string name)
+    {
+        var index = Array.IndexOf(table, name);
+        return (byte) (index < 0 ? 0 : index);
+    }
+}
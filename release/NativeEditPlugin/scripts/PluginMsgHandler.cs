@@ -27,7 +27,10 @@ using System.Collections.Generic;
 using System.Runtime.InteropServices;
 using System;
 using System.IO;
+using System.Text;
+using System.Threading;
 using AOT;
+using MiniJSON_Min;
 
 public class PluginMsgHandler : MonoBehaviour
 {
@@ -38,6 +41,27 @@ public class PluginMsgHandler : MonoBehaviour
 
     private const string DEFAULT_NAME = "NativeEditPluginHandler";
 
+    public const int PROTOCOL_JSON = 0;
+    public const int PROTOCOL_BINARY = 1;
+
+    /// <summary>
+    ///     Android only: how messages are sent to the plugin. Set before the first NativeEditBox starts.
+    /// </summary>
+    public static int protocol = PROTOCOL_JSON;
+
+    /// <summary>
+    ///     Android only: the plugin sends its events once per frame in one OnMsgBatchFromPlugin call.
+    ///     Set before the first NativeEditBox starts.
+    /// </summary>
+    public static bool outboundBatching;
+
+    public const int BATCH_OFF = 0;
+    public const int BATCH_AUTO = 1;
+    public const int BATCH_MANUAL = 2;
+
+    private static int _keyboardAvoidanceMode;
+    private static int _keyboardAvoidanceDurationMs;
+
     private bool isEditor
     {
         get
@@ -101,6 +125,14 @@ public class PluginMsgHandler : MonoBehaviour
     public void RemoveReceiver(int nReceiverId)
     {
         _receiverDict.Remove(nReceiverId);
+#if UNITY_ANDROID
+        AndroidJavaObject buffer;
+        if(_sharedBuffers.TryGetValue(nReceiverId, out buffer))
+        {
+            buffer.Dispose();
+            _sharedBuffers.Remove(nReceiverId);
+        }
+#endif
         if(_receiverDict.Count == 0) Destroy(_instance.gameObject);
     }
 
@@ -112,7 +144,24 @@ public class PluginMsgHandler : MonoBehaviour
     private void OnMsgFromPlugin(string jsonPluginMsg)
     {
         if(jsonPluginMsg == null) return;
-        var jsonMsg = new JsonObject(jsonPluginMsg);
+        DispatchMsg(new JsonObject(jsonPluginMsg));
+    }
+
+    private void OnMsgBatchFromPlugin(string jsonPluginMsgs)
+    {
+        if(jsonPluginMsgs == null) return;
+        var msgList = Json.Deserialize(jsonPluginMsgs) as List<object>;
+        if(msgList == null) return;
+
+        foreach(var msg in msgList)
+        {
+            var msgDict = msg as Dictionary<string, object>;
+            if(msgDict != null) DispatchMsg(new JsonObject(msgDict));
+        }
+    }
+
+    private void DispatchMsg(JsonObject jsonMsg)
+    {
         var nSenderId = jsonMsg.GetInt("senderId");
 
         // In some cases the receiver might be already removed, for example if a button is pressed
@@ -156,13 +205,21 @@ public class PluginMsgHandler : MonoBehaviour
 		// NativeEditBox text would be hidden after using Unity's Handheld.PlayFullScreenMovie().
 		if (smAndroid == null)
 			smAndroid = new AndroidJavaClass("com.bkmin.android.NativeEditPlugin");
-		smAndroid.CallStatic("InitPluginMsgHandler", name);
+		smAndroid.CallStatic("InitPluginMsgHandler", name, protocol);
+		if (outboundBatching)
+			smAndroid.CallStatic("SetOutboundBatching", true);
+		if (_keyboardAvoidanceMode != 0)
+			smAndroid.CallStatic("SetKeyboardAvoidance", _keyboardAvoidanceMode, _keyboardAvoidanceDurationMs);
 	}
 	
 	public void FinalizeHandler()
 	{	
-		if (!isEditor)
-			smAndroid.CallStatic("ClosePluginMsgHandler");
+		if (isEditor) return;
+
+		foreach (var buffer in _sharedBuffers.Values)
+			buffer.Dispose();
+		_sharedBuffers.Clear();
+		smAndroid.CallStatic("ClosePluginMsgHandler");
 	}
 
 #else
@@ -183,17 +240,229 @@ public class PluginMsgHandler : MonoBehaviour
         return new JsonObject();
 #else
         jsonMsg["senderId"] = nSenderId;
-        string strJson = jsonMsg.Serialize();
 
         string strRet = "";
         #if UNITY_IPHONE
-        strRet = _iOS_SendUnityMsgToPlugin(nSenderId, strJson);
+        strRet = _iOS_SendUnityMsgToPlugin(nSenderId, jsonMsg.Serialize());
         #elif UNITY_ANDROID 
-        strRet = smAndroid.CallStatic<string>("SendUnityMsgToPlugin", nSenderId, strJson);
+        strRet = SendAndroidMsg(nSenderId, jsonMsg);
         #endif
 
         JsonObject jsonRet = new JsonObject(strRet);
         return jsonRet;
 #endif
     }
+
+    /// <summary>
+    ///     Android only: sends many messages in one call, e.g. every field of a form, which the plugin applies in
+    ///     order in one UI-thread task. jsonMsgs[i] goes to the NativeEditBox senderIds[i].
+    ///     With PROTOCOL_BINARY they are sent in the binary framing unless one of them has no opcode.
+    /// </summary>
+    public void SendBulkMsgToPlugin(int[] senderIds, JsonObject[] jsonMsgs)
+    {
+#if UNITY_ANDROID
+        if(smAndroid == null)
+            return;
+        var binaryMsgs = protocol == PROTOCOL_BINARY ? EncodeAll(jsonMsgs) : null;
+        if(binaryMsgs != null)
+        {
+            var bulk = PluginMsgCodec.EncodeBulk(senderIds, binaryMsgs);
+            smAndroid.CallStatic<string>("SendUnityBinaryBulkMsgToPlugin", ToJavaBytes(bulk));
+            return;
+        }
+
+        var builder = new StringBuilder("[");
+        for(var i = 0; i < jsonMsgs.Length; i++)
+        {
+            jsonMsgs[i]["senderId"] = senderIds[i];
+            if(i > 0)
+                builder.Append(',');
+            builder.Append(jsonMsgs[i].Serialize());
+        }
+
+        builder.Append(']');
+        smAndroid.CallStatic<string>("SendUnityBulkMsgToPlugin", builder.ToString());
+#endif
+    }
+
+    /// <summary>
+    ///     Android only: registers the CreateEdit keys of style, all but the rect, as styleId. A CreateEdit message
+    ///     that sets "styleId" then starts from them and only needs its rect and the keys it changes.
+    ///     Styles are dropped when the handler is finalized.
+    /// </summary>
+    public static void RegisterStyle(int styleId, JsonObject style)
+    {
+#if UNITY_ANDROID
+        if(smAndroid == null)
+            return;
+        style["msg"] = "RegisterStyle";
+        style["styleId"] = styleId;
+        SendAndroidMsg(0, style);
+#endif
+    }
+
+    /// <summary>
+    ///     Android only: BATCH_AUTO applies the messages sent during a frame together on the next vsync,
+    ///     BATCH_MANUAL holds them until FlushPluginMsgs, typically called once at the end of the frame.
+    /// </summary>
+    public static void SetMsgBatchMode(int mode)
+    {
+#if UNITY_ANDROID
+        if(smAndroid != null)
+            smAndroid.CallStatic("SetMsgBatchMode", mode);
+#endif
+    }
+
+    public static void FlushPluginMsgs()
+    {
+#if UNITY_ANDROID
+        if(smAndroid != null)
+            smAndroid.CallStatic("FlushPluginMsgs");
+#endif
+    }
+
+    /// <summary>
+    ///     Android only: 0 scrolls the focused box above the keyboard, 1 animates the boxes there in durationMs,
+    ///     2 leaves them in place and sends KeyboardOffset to the focused NativeEditBox.
+    /// </summary>
+    public static void SetKeyboardAvoidance(int mode, int durationMs)
+    {
+        _keyboardAvoidanceMode = mode;
+        _keyboardAvoidanceDurationMs = durationMs;
+#if UNITY_ANDROID
+        if(smAndroid != null)
+            smAndroid.CallStatic("SetKeyboardAvoidance", mode, durationMs);
+#endif
+    }
+
+    /// <summary>
+    ///     Android only: whether a hardware keyboard is attached. Its keys reach Unity before the plugin.
+    /// </summary>
+    public static bool HasHardwareKeyboard()
+    {
+#if UNITY_ANDROID
+        if(smAndroid != null)
+            return smAndroid.CallStatic<bool>("HasHardwareKeyboard");
+#endif
+        return false;
+    }
+
+    /// <summary>
+    ///     Android only: loads a newline separated word list from a file on the device, in the background.
+    ///     Call it once a NativeEditBox has started, the indexes are dropped with the last NativeEditBox.
+    /// </summary>
+    public static void LoadSuggestionIndex(int indexId, string path)
+    {
+#if UNITY_ANDROID
+        if(smAndroid != null)
+            smAndroid.CallStatic("LoadSuggestionIndex", indexId, path);
+#endif
+    }
+
+    /// <summary>
+    ///     Android only: loads a UTF-8, newline separated word list, e.g. the bytes of a TextAsset.
+    /// </summary>
+    public static void LoadSuggestionIndexFromBuffer(int indexId, byte[] words)
+    {
+#if UNITY_ANDROID
+        if(smAndroid != null)
+            smAndroid.CallStatic("LoadSuggestionIndexFromBuffer", indexId, ToJavaBytes(words));
+#endif
+    }
+
+    public void SetSuggestions(int nSenderId, int indexId, int maxResults, int intervalMs)
+    {
+#if UNITY_ANDROID
+        if(smAndroid != null)
+            smAndroid.CallStatic("SetSuggestions", nSenderId, indexId, maxResults, intervalMs);
+#endif
+    }
+
+#if UNITY_ANDROID
+    private readonly Dictionary<int, AndroidJavaObject> _sharedBuffers = new Dictionary<int, AndroidJavaObject>();
+    private char[] _sharedChars = new char[256];
+
+    private static string SendAndroidMsg(int nSenderId, JsonObject jsonMsg)
+    {
+        var binaryMsg = protocol == PROTOCOL_BINARY ? PluginMsgCodec.Encode(jsonMsg) : null;
+        if(binaryMsg != null)
+            return smAndroid.CallStatic<string>("SendUnityBinaryMsgToPlugin", nSenderId, ToJavaBytes(binaryMsg));
+        return smAndroid.CallStatic<string>("SendUnityMsgToPlugin", nSenderId, jsonMsg.Serialize());
+    }
+
+    // Null if one of the messages has no binary form.
+    private static byte[][] EncodeAll(JsonObject[] jsonMsgs)
+    {
+        var binaryMsgs = new byte[jsonMsgs.Length][];
+        for(var i = 0; i < jsonMsgs.Length; i++)
+        {
+            binaryMsgs[i] = PluginMsgCodec.Encode(jsonMsgs[i]);
+            if(binaryMsgs[i] == null)
+                return null;
+        }
+
+        return binaryMsgs;
+    }
+
+    // Java's byte is signed. The runtime lets a byte[] be passed as sbyte[] without copying it.
+    private static sbyte[] ToJavaBytes(byte[] bytes)
+    {
+        return (sbyte[]) (Array) bytes;
+    }
+
+    /// <summary>
+    ///     Text of a box with textChangeMode Shared, read from the buffer the plugin writes it to.
+    ///     Pass the reallocated flag of the TextChangeShared message, the plugin then wrote to a new buffer.
+    /// </summary>
+    public string ReadSharedText(int nSenderId, bool reallocated)
+    {
+        AndroidJavaObject buffer;
+        if(reallocated || !_sharedBuffers.TryGetValue(nSenderId, out buffer))
+        {
+            if(_sharedBuffers.TryGetValue(nSenderId, out buffer))
+                buffer.Dispose();
+            buffer = smAndroid.CallStatic<AndroidJavaObject>("GetSharedTextBuffer", nSenderId);
+            if(buffer == null)
+            {
+                _sharedBuffers.Remove(nSenderId);
+                return string.Empty;
+            }
+
+            _sharedBuffers[nSenderId] = buffer;
+        }
+
+        var rawBuffer = buffer.GetRawObject();
+        var capacity = AndroidJNI.GetDirectBufferCapacity(rawBuffer);
+        IntPtr address;
+        unsafe
+        {
+            address = (IntPtr) AndroidJNI.GetDirectBufferAddress(rawBuffer);
+        }
+
+        // int32 version, int32 length, then the UTF-16 chars. The version is odd while the plugin writes,
+        // so read until it is even and unchanged around the copy.
+        while(true)
+        {
+            var version = Marshal.ReadInt32(address, 0);
+            Thread.MemoryBarrier();
+            var length = Marshal.ReadInt32(address, 4);
+            if((version & 1) == 0 && length >= 0 && 8 + 2L * length <= capacity)
+            {
+                if(_sharedChars.Length < length)
+                    _sharedChars = new char[Math.Max(length, _sharedChars.Length * 2)];
+                Marshal.Copy(IntPtr.Add(address, 8), _sharedChars, 0, length);
+                Thread.MemoryBarrier();
+                if(Marshal.ReadInt32(address, 0) == version)
+                    return new string(_sharedChars, 0, length);
+            }
+
+            Thread.Yield();
+        }
+    }
+#else
+    public string ReadSharedText(int nSenderId, bool reallocated)
+    {
+        return string.Empty;
+    }
+#endif
 }
\ No newline at end of file
@@ -27,6 +27,11 @@ public abstract class PluginMsgReceiver : MonoBehaviour
 {
     private int _receiverId;
 
+    protected int receiverId
+    {
+        get { return _receiverId; }
+    }
+
     protected virtual void Start()
     {
         _receiverId = PluginMsgHandler.GetInstanceForReceiver(this).RegisterAndGetReceiverId(this);
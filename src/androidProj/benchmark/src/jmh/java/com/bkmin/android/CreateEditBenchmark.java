@@ -0,0 +1,79 @@
+package com.bkmin.android;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+// Creates and removes a whole screen of boxes per invocation, the tab-switch pattern.
+// bulk=true sends the creates and the removes as one bulk message each instead of one message per box.
+@State(Scope.Thread)
+public class CreateEditBenchmark {
+    @Param({"1", "10", "100"})
+    public int boxes;
+
+    @Param({"json", "binary"})
+    public String protocol;
+
+    @Param({"false", "true"})
+    public boolean bulk;
+
+    private int protocolId;
+    private String[] createJson;
+    private String[] removeJson;
+    private byte[][] createBinary;
+    private byte[] removeBinary;
+    private String createJsonBulk;
+    private String removeJsonBulk;
+    private byte[] createBinaryBulk;
+    private byte[] removeBinaryBulk;
+
+    @Setup
+    public void setup() {
+        protocolId = protocol.equals("binary") ? PluginHarness.PROTOCOL_BINARY : PluginHarness.PROTOCOL_JSON;
+        PluginHarness.init(protocolId);
+        createJson = new String[boxes];
+        removeJson = new String[boxes];
+        createBinary = new byte[boxes][];
+        for (int i = 0; i < boxes; i++) {
+            createJson[i] = PluginHarness.createJson(i, i);
+            removeJson[i] = PluginHarness.removeJson(i);
+            createBinary[i] = MsgCodec.encodeCreate(PluginHarness.createParams(i));
+        }
+        removeBinary = MsgCodec.encodeRemove();
+
+        int[] senderIds = new int[boxes];
+        byte[][] removes = new byte[boxes][];
+        for (int i = 0; i < boxes; i++) {
+            senderIds[i] = i;
+            removes[i] = removeBinary;
+        }
+        createJsonBulk = PluginHarness.bulkJson(createJson);
+        removeJsonBulk = PluginHarness.bulkJson(removeJson);
+        createBinaryBulk = MsgCodec.encodeBulk(senderIds, createBinary);
+        removeBinaryBulk = MsgCodec.encodeBulk(senderIds, removes);
+    }
+
+    @TearDown
+    public void tearDown() {
+        PluginHarness.close();
+    }
+
+    @Benchmark
+    public int createAndRemove() {
+        if (bulk) {
+            PluginHarness.sendBulk(protocolId, createJsonBulk, createBinaryBulk);
+            int created = PluginHarness.editTexts().size();
+            PluginHarness.sendBulk(protocolId, removeJsonBulk, removeBinaryBulk);
+            return created;
+        }
+        for (int i = 0; i < boxes; i++)
+            PluginHarness.send(protocolId, i, createJson[i], createBinary[i]);
+        int created = PluginHarness.editTexts().size();
+        for (int i = 0; i < boxes; i++)
+            PluginHarness.send(protocolId, i, removeJson[i], removeBinary);
+        return created;
+    }
+}
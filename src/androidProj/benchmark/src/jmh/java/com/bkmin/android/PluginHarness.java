@@ -0,0 +1,154 @@
+package com.bkmin.android;
+
+import android.app.Activity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.EditText;
+import android.widget.RelativeLayout;
+
+import com.unity3d.player.UnityPlayer;
+
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+
+// Boots NativeEditPlugin against the stand-in Activity and builds the messages the C# side would send.
+final class PluginHarness {
+    static final int PROTOCOL_JSON = NativeEditPlugin.PROTOCOL_JSON;
+    static final int PROTOCOL_BINARY = NativeEditPlugin.PROTOCOL_BINARY;
+
+    private PluginHarness() {
+    }
+
+    static void init(int protocol) {
+        init(protocol, -1);
+    }
+
+    static void init(int protocol, int editTextPoolSize) {
+        UnityPlayer.currentActivity = new Activity();
+        NativeEditPlugin.InitPluginMsgHandler("NativeEditPluginHandler", protocol, editTextPoolSize);
+    }
+
+    static void close() {
+        NativeEditPlugin.ClosePluginMsgHandler();
+    }
+
+    static void send(int protocol, int senderId, String json, byte[] binary) {
+        if (protocol == PROTOCOL_BINARY)
+            NativeEditPlugin.SendUnityBinaryMsgToPlugin(senderId, binary);
+        else
+            NativeEditPlugin.SendUnityMsgToPlugin(senderId, json);
+    }
+
+    static void sendBulk(int protocol, String jsonMsgs, byte[] binaryMsgs) {
+        if (protocol == PROTOCOL_BINARY)
+            NativeEditPlugin.SendUnityBinaryBulkMsgToPlugin(binaryMsgs);
+        else
+            NativeEditPlugin.SendUnityBulkMsgToPlugin(jsonMsgs);
+    }
+
+    // The messages must carry their senderId, as the ones built here do.
+    static String bulkJson(String[] jsonMsgs) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < jsonMsgs.length; i++) {
+            if (i > 0)
+                sb.append(',');
+            sb.append(jsonMsgs[i]);
+        }
+        return sb.append(']').toString();
+    }
+
+    static EditBox.CreateParams createParams(int index) {
+        EditBox.CreateParams p = new EditBox.CreateParams();
+        p.x = 0.1;
+        p.y = 0.05 + (index % 18) * 0.05;
+        p.width = 0.8;
+        p.height = 0.04;
+        p.characterLimit = 0;
+        p.textColor = 0xff000000;
+        p.backColor = 0x00ffffff;
+        p.placeHolderColor = 0x80808080;
+        p.fontSize = 32f;
+        p.placeHolder = "Enter text...";
+        p.font = "";
+        p.contentType = "Standard";
+        p.keyboardType = "Default";
+        p.inputType = "Standard";
+        p.returnKeyType = "Done";
+        p.alignment = "MiddleLeft";
+        p.multiline = false;
+        return p;
+    }
+
+    // Same keys and value types NativeEditBox.CreateNativeEdit sends.
+    static String createJson(int index, int senderId) {
+        EditBox.CreateParams p = createParams(index);
+        try {
+            JSONObject json = new JSONObject();
+            json.put("msg", "CreateEdit");
+            json.put("x", p.x);
+            json.put("y", p.y);
+            json.put("width", p.width);
+            json.put("height", p.height);
+            json.put("characterLimit", p.characterLimit);
+            putColor(json, "textColor", p.textColor);
+            putColor(json, "backColor", p.backColor);
+            putColor(json, "placeHolderColor", p.placeHolderColor);
+            json.put("font", p.font);
+            json.put("fontSize", p.fontSize);
+            json.put("contentType", p.contentType);
+            json.put("align", p.alignment);
+            json.put("withDoneButton", true);
+            json.put("placeHolder", p.placeHolder);
+            json.put("multiline", p.multiline);
+            json.put("return_key_type", p.returnKeyType);
+            json.put("senderId", senderId);
+            return json.toString();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String removeJson(int senderId) {
+        return "{\"msg\":\"RemoveEdit\",\"senderId\":" + senderId + "}";
+    }
+
+    static String setRectJson(int senderId, float x, float y, float width, float height) {
+        try {
+            JSONObject json = new JSONObject();
+            json.put("msg", "SetRect");
+            json.put("x", x);
+            json.put("y", y);
+            json.put("width", width);
+            json.put("height", height);
+            json.put("senderId", senderId);
+            return json.toString();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void putColor(JSONObject json, String name, int argb) throws Exception {
+        json.put(name + "_r", ((argb >> 16) & 0xff) / 255.0);
+        json.put(name + "_g", ((argb >> 8) & 0xff) / 255.0);
+        json.put(name + "_b", (argb & 0xff) / 255.0);
+        json.put(name + "_a", ((argb >>> 24) & 0xff) / 255.0);
+    }
+
+    // The EditTexts currently attached to the plugin layout, in creation order.
+    static ArrayList<EditText> editTexts() {
+        ArrayList<EditText> result = new ArrayList<>();
+        ViewGroup content = NativeEditPlugin.getHost().rootView;
+        for (int i = 0; i < content.getChildCount(); i++) {
+            View child = content.getChildAt(i);
+            if (child instanceof RelativeLayout) {
+                RelativeLayout layout = (RelativeLayout) child;
+                for (int j = 0; j < layout.getChildCount(); j++) {
+                    if (layout.getChildAt(j) instanceof EditText)
+                        result.add((EditText) layout.getChildAt(j));
+                }
+            }
+        }
+        return result;
+    }
+}
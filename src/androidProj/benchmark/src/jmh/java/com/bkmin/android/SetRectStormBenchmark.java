@@ -0,0 +1,61 @@
+package com.bkmin.android;
+
+import android.view.View;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+// One SetRect per box per invocation, like NativeEditBox.Update on its timer.
+// moving=false resends the same rect (the common case), moving=true alternates between two rects.
+@State(Scope.Thread)
+public class SetRectStormBenchmark {
+    @Param({"1", "10", "100"})
+    public int boxes;
+
+    @Param({"json", "binary"})
+    public String protocol;
+
+    @Param({"false", "true"})
+    public boolean moving;
+
+    private int protocolId;
+    private String[][] rectJson;
+    private byte[][][] rectBinary;
+    private int frame;
+
+    @Setup
+    public void setup() {
+        protocolId = protocol.equals("binary") ? PluginHarness.PROTOCOL_BINARY : PluginHarness.PROTOCOL_JSON;
+        PluginHarness.init(protocolId);
+        rectJson = new String[2][boxes];
+        rectBinary = new byte[2][boxes][];
+        for (int i = 0; i < boxes; i++) {
+            PluginHarness.send(protocolId, i, PluginHarness.createJson(i, i), MsgCodec.encodeCreate(PluginHarness.createParams(i)));
+            for (int v = 0; v < 2; v++) {
+                float y = 0.05f + (i % 18) * 0.05f + v * 0.01f;
+                rectJson[v][i] = PluginHarness.setRectJson(i, 0.1f, y, 0.8f, 0.04f);
+                rectBinary[v][i] = MsgCodec.encodeSetRect(0.1f, y, 0.8f, 0.04f);
+            }
+        }
+        View.layoutRequests = 0;
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (int i = 0; i < boxes; i++)
+            PluginHarness.send(protocolId, i, PluginHarness.removeJson(i), MsgCodec.encodeRemove());
+        PluginHarness.close();
+    }
+
+    @Benchmark
+    public long setRectAll() {
+        int v = moving ? (frame++ & 1) : 0;
+        for (int i = 0; i < boxes; i++)
+            PluginHarness.send(protocolId, i, rectJson[v][i], rectBinary[v][i]);
+        return View.layoutRequests;
+    }
+}
@@ -0,0 +1,64 @@
+package com.bkmin.android;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+// Autocomplete lookups against a dictionary of generated names, one query per keystroke of a typed word.
+// Short prefixes match a large part of the dictionary, so they measure the early exit at maxResults.
+@State(Scope.Thread)
+public class SuggestionIndexBenchmark {
+    private static final String SYLLABLES[] = {"ka", "ri", "to", "mel", "an", "dor", "sha", "vin", "el", "gar",
+            "lo", "bre", "th", "qu", "ix", "on", "ur", "sel", "dra", "ny"};
+
+    @Param({"200000"})
+    public int entries;
+
+    @Param({"8"})
+    public int maxResults;
+
+    private SuggestionIndex index;
+    private String[] queries;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        ArrayList<String> names = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++)
+            names.add(name(random));
+        index = SuggestionIndex.build(names);
+
+        // Every prefix of a few words, as typed.
+        ArrayList<String> typed = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            String word = name(random);
+            for (int len = 1; len <= word.length(); len++)
+                typed.add(word.substring(0, len));
+        }
+        queries = typed.toArray(new String[0]);
+    }
+
+    private static String name(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int syllables = 2 + random.nextInt(3);
+        for (int i = 0; i < syllables; i++)
+            sb.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        sb.setCharAt(0, Character.toUpperCase(sb.charAt(0)));
+        if (random.nextInt(4) == 0)
+            sb.append(random.nextInt(100));
+        return sb.toString();
+    }
+
+    @Benchmark
+    public int lookup() {
+        String query = queries[next];
+        next = (next + 1) % queries.length;
+        return index.lookup(query, maxResults).size();
+    }
+}
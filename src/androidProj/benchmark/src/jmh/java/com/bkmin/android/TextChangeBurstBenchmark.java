@@ -0,0 +1,56 @@
+package com.bkmin.android;
+
+import android.text.Editable;
+import android.widget.EditText;
+
+import com.unity3d.player.UnityPlayer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+
+// One IME commit per box per invocation. Each commit runs the box's TextWatcher and sends the resulting
+// event to the stand-in UnityPlayer. Text grows to textLength characters before it is cleared again.
+@State(Scope.Thread)
+public class TextChangeBurstBenchmark {
+    @Param({"1", "10", "100"})
+    public int boxes;
+
+    @Param({"64", "4096"})
+    public int textLength;
+
+    private Editable[] texts;
+
+    @Setup
+    public void setup() {
+        PluginHarness.init(PluginHarness.PROTOCOL_JSON);
+        for (int i = 0; i < boxes; i++)
+            NativeEditPlugin.SendUnityMsgToPlugin(i, PluginHarness.createJson(i, i));
+        ArrayList<EditText> edits = PluginHarness.editTexts();
+        texts = new Editable[edits.size()];
+        for (int i = 0; i < texts.length; i++)
+            texts[i] = edits.get(i).getText();
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (int i = 0; i < boxes; i++)
+            NativeEditPlugin.SendUnityMsgToPlugin(i, PluginHarness.removeJson(i));
+        PluginHarness.close();
+    }
+
+    @Benchmark
+    public long typeOneCharEach() {
+        for (Editable text : texts) {
+            if (text.length() >= textLength)
+                text.clear();
+            text.append("a");
+        }
+        return UnityPlayer.messagesSent;
+    }
+}
@@ -0,0 +1,267 @@
+package com.bkmin.android;
+
+import android.view.Choreographer;
+
+import com.unity3d.player.UnityPlayer;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.LockSupport;
+
+// Replays a trace written by NativeEditPlugin.StartMsgTrace against the stand-in views and reports how long the
+// plugin took per message type. The stand-in activity runs UI-thread work inline, so a message's time covers
+// decoding and applying it. Tasks the views posted and a frame's callbacks are run after every record and reported
+// as "(posted)".
+//
+//   ./gradlew :benchmark:replay -Ptrace=trace.bin [-Pspeed=recorded] [-Prepeat=n]
+//
+// --speed max (default) replays back to back, --speed recorded keeps the recorded gaps between messages.
+public final class TraceReplay {
+    private static final String POSTED = "(posted)";
+
+    // Durations in ns of one message type.
+    private static final class Samples {
+        long[] values = new long[64];
+        int count;
+
+        void add(long v) {
+            if (count == values.length)
+                values = Arrays.copyOf(values, count * 2);
+            values[count++] = v;
+        }
+    }
+
+    private final byte[] trace;
+    private final boolean recordedSpeed;
+    private final Map<String, Samples> samples = new TreeMap<>();
+    private int protocol;
+    private int poolSize;
+    private long recordedOut;
+    private long replayedOut;
+    private long errors;
+
+    private TraceReplay(byte[] trace, boolean recordedSpeed) {
+        this.trace = trace;
+        this.recordedSpeed = recordedSpeed;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: TraceReplay <trace> [--speed max|recorded] [--repeat n]");
+            System.exit(2);
+        }
+        boolean recordedSpeed = false;
+        int repeat = 1;
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            if (args[i].equals("--speed"))
+                recordedSpeed = args[i + 1].equals("recorded");
+            else if (args[i].equals("--repeat"))
+                repeat = Integer.parseInt(args[i + 1]);
+        }
+
+        TraceReplay replay = new TraceReplay(Files.readAllBytes(Paths.get(args[0])), recordedSpeed);
+        for (int i = 0; i < repeat; i++)
+            replay.run();
+        replay.report();
+    }
+
+    private MsgCodec.Reader readHeader() {
+        MsgCodec.Reader reader = new MsgCodec.Reader().reset(trace);
+        if (reader.readInt() != MsgTrace.MAGIC)
+            throw new IllegalArgumentException("Not a msg trace");
+        int version = reader.readInt();
+        if (version != MsgTrace.VERSION)
+            throw new IllegalArgumentException("Unsupported msg trace version " + version);
+        protocol = reader.readInt();
+        poolSize = reader.readInt();
+        reader.readLong();
+        return reader;
+    }
+
+    private void run() {
+        MsgCodec.Reader reader = readHeader();
+        PluginHarness.init(protocol, poolSize);
+        long sentBefore = UnityPlayer.messagesSent;
+        long replayStart = System.nanoTime();
+        long firstTime = -1;
+
+        try {
+            while (reader.remaining() > 0) {
+                byte kind = reader.readByte();
+                long time = reader.readLong();
+                if (firstTime < 0)
+                    firstTime = time;
+                if (recordedSpeed) {
+                    long due = replayStart + (time - firstTime);
+                    long wait;
+                    while ((wait = due - System.nanoTime()) > 0)
+                        LockSupport.parkNanos(wait);
+                }
+                try {
+                    replayRecord(kind, reader);
+                } catch (JSONException e) {
+                    // The record was read whole, so the next one still lines up.
+                    errors++;
+                }
+                runPosted();
+            }
+        } catch (IllegalArgumentException e) {
+            // A trace whose writer was cut off ends in a partial record.
+            System.err.println("Trace truncated: " + e.getMessage());
+        }
+
+        replayedOut += UnityPlayer.messagesSent - sentBefore;
+        PluginHarness.close();
+    }
+
+    private void replayRecord(byte kind, MsgCodec.Reader reader) {
+        long start;
+        switch (kind) {
+            case MsgTrace.IN_JSON: {
+                int senderId = reader.readInt();
+                String json = reader.readString();
+                String type = new JSONObject(json).optString("msg", "Unknown");
+                start = System.nanoTime();
+                NativeEditPlugin.SendUnityMsgToPlugin(senderId, json);
+                sample(type, start);
+                break;
+            }
+            case MsgTrace.IN_BINARY: {
+                int senderId = reader.readInt();
+                byte[] msg = readBytes(reader);
+                String type = msg.length > 0 ? MsgCodec.nameAt(MsgCodec.OP_NAMES, msg[0]) : "";
+                start = System.nanoTime();
+                NativeEditPlugin.SendUnityBinaryMsgToPlugin(senderId, msg);
+                sample(type.isEmpty() ? "Unknown" : type, start);
+                break;
+            }
+            case MsgTrace.IN_BULK_JSON: {
+                String json = reader.readString();
+                start = System.nanoTime();
+                NativeEditPlugin.SendUnityBulkMsgToPlugin(json);
+                sample("Bulk", start);
+                break;
+            }
+            case MsgTrace.IN_BULK_BINARY: {
+                byte[] msgs = readBytes(reader);
+                start = System.nanoTime();
+                NativeEditPlugin.SendUnityBinaryBulkMsgToPlugin(msgs);
+                sample("Bulk", start);
+                break;
+            }
+            case MsgTrace.OUT:
+            case MsgTrace.OUT_BATCH:
+                reader.readString();
+                recordedOut++;
+                break;
+            case MsgTrace.BATCH_MODE: {
+                int mode = reader.readInt();
+                start = System.nanoTime();
+                NativeEditPlugin.SetMsgBatchMode(mode);
+                sample("SetMsgBatchMode", start);
+                break;
+            }
+            case MsgTrace.FLUSH:
+                start = System.nanoTime();
+                NativeEditPlugin.FlushPluginMsgs();
+                sample("FlushPluginMsgs", start);
+                break;
+            case MsgTrace.OUTBOUND_BATCHING:
+                NativeEditPlugin.SetOutboundBatching(reader.readBool());
+                break;
+            case MsgTrace.LAZY_VIEWS: {
+                boolean enabled = reader.readBool();
+                NativeEditPlugin.SetLazyViews(enabled, reader.readInt());
+                break;
+            }
+            case MsgTrace.VALIDATION_RULE: {
+                int ruleId = reader.readInt();
+                NativeEditPlugin.RegisterValidationRule(ruleId, reader.readString());
+                break;
+            }
+            case MsgTrace.KEYBOARD_AVOIDANCE: {
+                int mode = reader.readInt();
+                NativeEditPlugin.SetKeyboardAvoidance(mode, reader.readInt());
+                break;
+            }
+            case MsgTrace.SUGGESTIONS: {
+                int senderId = reader.readInt();
+                int indexId = reader.readInt();
+                int maxResults = reader.readInt();
+                NativeEditPlugin.SetSuggestions(senderId, indexId, maxResults, reader.readInt());
+                break;
+            }
+            case MsgTrace.SUGGESTION_INDEX: {
+                // The path is on the device, the load fails and is logged unless the file was copied along.
+                int indexId = reader.readInt();
+                NativeEditPlugin.LoadSuggestionIndex(indexId, reader.readString());
+                break;
+            }
+            case MsgTrace.SUGGESTION_INDEX_BUFFER: {
+                int indexId = reader.readInt();
+                NativeEditPlugin.LoadSuggestionIndexFromBuffer(indexId, readBytes(reader));
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown record kind " + kind);
+        }
+    }
+
+    private void runPosted() {
+        PluginHost host = NativeEditPlugin.getHost();
+        if (host == null)
+            return;
+        long start = System.nanoTime();
+        host.mainLayout.runPending();
+        host.rootView.runPending();
+        Choreographer.getInstance().doFrame();
+        sample(POSTED, start);
+    }
+
+    private static byte[] readBytes(MsgCodec.Reader reader) {
+        byte[] bytes = new byte[reader.readInt()];
+        for (int i = 0; i < bytes.length; i++)
+            bytes[i] = reader.readByte();
+        return bytes;
+    }
+
+    private void sample(String type, long start) {
+        long elapsed = System.nanoTime() - start;
+        Samples s = samples.get(type);
+        if (s == null) {
+            s = new Samples();
+            samples.put(type, s);
+        }
+        s.add(elapsed);
+    }
+
+    private void report() {
+        System.out.println(String.format("%-20s %8s %10s %10s %10s %10s %10s",
+                "message", "count", "total ms", "mean us", "p50 us", "p99 us", "max us"));
+        for (Map.Entry<String, Samples> e : samples.entrySet()) {
+            Samples s = e.getValue();
+            long[] sorted = Arrays.copyOf(s.values, s.count);
+            Arrays.sort(sorted);
+            long total = 0;
+            for (long v : sorted)
+                total += v;
+            System.out.println(String.format("%-20s %8d %10.2f %10.2f %10.2f %10.2f %10.2f",
+                    e.getKey(), s.count, total / 1e6, total / 1e3 / s.count,
+                    percentile(sorted, 0.50) / 1e3, percentile(sorted, 0.99) / 1e3, sorted[sorted.length - 1] / 1e3));
+        }
+        System.out.println(String.format("events to Unity: recorded %d, replayed %d", recordedOut, replayedOut));
+        if (errors > 0)
+            System.out.println(String.format("malformed records: %d", errors));
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) (p * sorted.length))];
+    }
+}
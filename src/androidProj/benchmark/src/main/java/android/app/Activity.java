@@ -0,0 +1,53 @@
+package android.app;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.view.KeyEvent;
+import android.view.View;
+import android.view.Window;
+import android.view.inputmethod.InputMethodManager;
+
+// Stand-in activity: the "UI thread" is the calling thread, runOnUiThread runs the task immediately.
+public class Activity extends Context {
+    // Like the Application, outlives every activity.
+    private static final Context application = new Context();
+
+    private final Window window = new Window(this);
+    private final InputMethodManager inputMethodManager = new InputMethodManager();
+    private final Resources resources = new Resources();
+
+    // Keys dispatched to the activity. Unity's activity consumes them, the EditText never sees them.
+    public int keysDispatched;
+
+    @Override
+    public Context getApplicationContext() {
+        return application;
+    }
+
+    public boolean dispatchKeyEvent(KeyEvent event) {
+        keysDispatched++;
+        return true;
+    }
+
+    @Override
+    public Resources getResources() {
+        return resources;
+    }
+
+    public void runOnUiThread(Runnable action) {
+        action.run();
+    }
+
+    public <T extends View> T findViewById(int id) {
+        return window.getDecorView().findViewById(id);
+    }
+
+    public Window getWindow() {
+        return window;
+    }
+
+    @Override
+    public Object getSystemService(String name) {
+        return INPUT_METHOD_SERVICE.equals(name) ? inputMethodManager : null;
+    }
+}
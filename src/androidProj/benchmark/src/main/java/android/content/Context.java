@@ -0,0 +1,26 @@
+package android.content;
+
+import android.content.res.AssetManager;
+import android.content.res.Resources;
+
+public class Context {
+    public static final String INPUT_METHOD_SERVICE = "input_method";
+
+    private final AssetManager assets = new AssetManager();
+
+    public Context getApplicationContext() {
+        return this;
+    }
+
+    public Resources getResources() {
+        return null;
+    }
+
+    public AssetManager getAssets() {
+        return assets;
+    }
+
+    public Object getSystemService(String name) {
+        return null;
+    }
+}
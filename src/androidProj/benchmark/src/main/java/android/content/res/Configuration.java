@@ -0,0 +1,12 @@
+package android.content.res;
+
+// A device without a hardware keyboard.
+public class Configuration {
+    public static final int KEYBOARD_NOKEYS = 1;
+    public static final int KEYBOARD_QWERTY = 2;
+    public static final int HARDKEYBOARDHIDDEN_NO = 1;
+    public static final int HARDKEYBOARDHIDDEN_YES = 2;
+
+    public int keyboard = KEYBOARD_NOKEYS;
+    public int hardKeyboardHidden = HARDKEYBOARDHIDDEN_YES;
+}
@@ -0,0 +1,24 @@
+package android.graphics;
+
+import android.content.res.AssetManager;
+
+import java.io.File;
+
+public class Typeface {
+    public static final int NORMAL = 0;
+    public static final Typeface DEFAULT = new Typeface();
+
+    public static Typeface create(String familyName, int style) {
+        return new Typeface();
+    }
+
+    public static Typeface createFromAsset(AssetManager mgr, String path) {
+        return new Typeface();
+    }
+
+    public static Typeface createFromFile(String path) {
+        if (!new File(path).isFile())
+            throw new RuntimeException("Font not found " + path);
+        return new Typeface();
+    }
+}
@@ -0,0 +1,17 @@
+package android.text;
+
+public interface Editable extends Spannable {
+    Editable replace(int st, int en, CharSequence text);
+
+    Editable insert(int where, CharSequence text);
+
+    Editable delete(int st, int en);
+
+    Editable append(CharSequence text);
+
+    void clear();
+
+    void setFilters(InputFilter[] filters);
+
+    InputFilter[] getFilters();
+}
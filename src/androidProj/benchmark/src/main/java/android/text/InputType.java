@@ -0,0 +1,18 @@
+package android.text;
+
+public interface InputType {
+    int TYPE_CLASS_TEXT = 1;
+    int TYPE_CLASS_NUMBER = 2;
+    int TYPE_CLASS_PHONE = 3;
+    int TYPE_TEXT_FLAG_CAP_SENTENCES = 16384;
+    int TYPE_TEXT_FLAG_AUTO_CORRECT = 32768;
+    int TYPE_TEXT_FLAG_MULTI_LINE = 131072;
+    int TYPE_TEXT_FLAG_NO_SUGGESTIONS = 524288;
+    int TYPE_TEXT_VARIATION_URI = 16;
+    int TYPE_TEXT_VARIATION_EMAIL_ADDRESS = 32;
+    int TYPE_TEXT_VARIATION_PERSON_NAME = 96;
+    int TYPE_TEXT_VARIATION_PASSWORD = 128;
+    int TYPE_NUMBER_FLAG_SIGNED = 4096;
+    int TYPE_NUMBER_FLAG_DECIMAL = 8192;
+    int TYPE_NUMBER_VARIATION_PASSWORD = 16;
+}
@@ -0,0 +1,61 @@
+package android.text;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+
+// Spans of the stand-in Spannable classes, in the order they were set.
+final class SpanSet {
+    private final ArrayList<Object> spans = new ArrayList<>();
+    private final ArrayList<int[]> ranges = new ArrayList<>();
+
+    void set(Object what, int start, int end, int flags) {
+        int i = spans.indexOf(what);
+        if (i < 0) {
+            spans.add(what);
+            ranges.add(new int[]{start, end, flags});
+        } else {
+            ranges.set(i, new int[]{start, end, flags});
+        }
+    }
+
+    void remove(Object what) {
+        int i = spans.indexOf(what);
+        if (i >= 0) {
+            spans.remove(i);
+            ranges.remove(i);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> T[] get(int start, int end, Class<T> type) {
+        ArrayList<T> found = new ArrayList<>();
+        for (int i = 0; i < spans.size(); i++) {
+            int[] r = ranges.get(i);
+            if (type.isInstance(spans.get(i)) && r[0] <= end && r[1] >= start)
+                found.add((T) spans.get(i));
+        }
+        return found.toArray((T[]) Array.newInstance(type, found.size()));
+    }
+
+    int field(Object what, int field) {
+        int i = spans.indexOf(what);
+        return i < 0 ? (field == 2 ? 0 : -1) : ranges.get(i)[field];
+    }
+
+    // Moves the spans along once [start, end) was replaced by count chars.
+    void replace(int start, int end, int count) {
+        int delta = count - (end - start);
+        for (int[] r : ranges) {
+            r[0] = moved(r[0], start, end, delta, start);
+            r[1] = moved(r[1], start, end, delta, start + count);
+        }
+    }
+
+    private static int moved(int pos, int start, int end, int delta, int inside) {
+        if (pos > end || pos == end && end > start)
+            return pos + delta;
+        if (pos > start)
+            return inside;
+        return pos;
+    }
+}
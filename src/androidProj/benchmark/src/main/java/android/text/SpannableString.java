@@ -0,0 +1,62 @@
+package android.text;
+
+public class SpannableString implements Spannable {
+    private final String text;
+    private final SpanSet spans = new SpanSet();
+
+    public SpannableString(CharSequence source) {
+        this.text = source.toString();
+    }
+
+    @Override
+    public void setSpan(Object what, int start, int end, int flags) {
+        if (start < 0 || end > text.length() || start > end)
+            throw new IndexOutOfBoundsException("setSpan (" + start + " ... " + end + ") of " + text.length());
+        spans.set(what, start, end, flags);
+    }
+
+    @Override
+    public void removeSpan(Object what) {
+        spans.remove(what);
+    }
+
+    @Override
+    public <T> T[] getSpans(int start, int end, Class<T> type) {
+        return spans.get(start, end, type);
+    }
+
+    @Override
+    public int getSpanStart(Object tag) {
+        return spans.field(tag, 0);
+    }
+
+    @Override
+    public int getSpanEnd(Object tag) {
+        return spans.field(tag, 1);
+    }
+
+    @Override
+    public int getSpanFlags(Object tag) {
+        return spans.field(tag, 2);
+    }
+
+    @Override
+    public int length() {
+        return text.length();
+    }
+
+    @Override
+    public char charAt(int index) {
+        return text.charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return text.subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
@@ -0,0 +1,127 @@
+package android.text;
+
+import java.util.ArrayList;
+
+// StringBuilder backed Editable that reports every edit to its TextWatchers like the framework class does.
+public class SpannableStringBuilder implements Editable {
+    private final StringBuilder text;
+    private final ArrayList<TextWatcher> watchers;
+    private InputFilter[] filters = new InputFilter[0];
+    private final SpanSet spans = new SpanSet();
+
+    public SpannableStringBuilder(CharSequence source) {
+        this(source, new ArrayList<TextWatcher>());
+    }
+
+    public SpannableStringBuilder(CharSequence source, int start, int end) {
+        this(source.subSequence(start, end));
+        if (source instanceof Spanned)
+            TextUtils.copySpansFrom((Spanned) source, start, end, null, this, 0);
+    }
+
+    public SpannableStringBuilder(CharSequence source, ArrayList<TextWatcher> watchers) {
+        this.text = new StringBuilder(source);
+        this.watchers = watchers;
+    }
+
+    @Override
+    public Editable replace(int st, int en, CharSequence tb) {
+        for (InputFilter f : filters) {
+            CharSequence repl = f.filter(tb, 0, tb.length(), this, st, en);
+            if (repl != null)
+                tb = repl;
+        }
+        int before = en - st;
+        int after = tb.length();
+        TextWatcher[] current = watchers.toArray(new TextWatcher[0]);
+        for (TextWatcher w : current)
+            w.beforeTextChanged(this, st, before, after);
+        text.replace(st, en, tb.toString());
+        spans.replace(st, en, after);
+        for (TextWatcher w : current)
+            w.onTextChanged(this, st, before, after);
+        for (TextWatcher w : current)
+            w.afterTextChanged(this);
+        return this;
+    }
+
+    @Override
+    public Editable insert(int where, CharSequence tb) {
+        return replace(where, where, tb);
+    }
+
+    @Override
+    public Editable delete(int st, int en) {
+        return replace(st, en, "");
+    }
+
+    @Override
+    public Editable append(CharSequence tb) {
+        return replace(length(), length(), tb);
+    }
+
+    @Override
+    public void clear() {
+        replace(0, length(), "");
+    }
+
+    @Override
+    public void setSpan(Object what, int start, int end, int flags) {
+        spans.set(what, start, end, flags);
+    }
+
+    @Override
+    public void removeSpan(Object what) {
+        spans.remove(what);
+    }
+
+    @Override
+    public <T> T[] getSpans(int start, int end, Class<T> type) {
+        return spans.get(start, end, type);
+    }
+
+    @Override
+    public int getSpanStart(Object tag) {
+        return spans.field(tag, 0);
+    }
+
+    @Override
+    public int getSpanEnd(Object tag) {
+        return spans.field(tag, 1);
+    }
+
+    @Override
+    public int getSpanFlags(Object tag) {
+        return spans.field(tag, 2);
+    }
+
+    @Override
+    public void setFilters(InputFilter[] filters) {
+        this.filters = filters;
+    }
+
+    @Override
+    public InputFilter[] getFilters() {
+        return filters;
+    }
+
+    @Override
+    public int length() {
+        return text.length();
+    }
+
+    @Override
+    public char charAt(int index) {
+        return text.charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return text.subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return text.toString();
+    }
+}
@@ -0,0 +1,14 @@
+package android.text;
+
+public interface Spanned extends CharSequence {
+    int SPAN_EXCLUSIVE_EXCLUSIVE = 0x21;
+    int SPAN_COMPOSING = 0x100;
+
+    <T> T[] getSpans(int start, int end, Class<T> type);
+
+    int getSpanStart(Object tag);
+
+    int getSpanEnd(Object tag);
+
+    int getSpanFlags(Object tag);
+}
@@ -0,0 +1,14 @@
+package android.text;
+
+public class TextUtils {
+    public static void copySpansFrom(Spanned source, int start, int end, Class<?> kind, Spannable dest, int destoff) {
+        if (kind == null)
+            kind = Object.class;
+        Object[] spans = source.getSpans(start, end, kind);
+        for (Object span : spans) {
+            int st = Math.max(source.getSpanStart(span), start);
+            int en = Math.min(source.getSpanEnd(span), end);
+            dest.setSpan(span, st - start + destoff, en - start + destoff, source.getSpanFlags(span));
+        }
+    }
+}
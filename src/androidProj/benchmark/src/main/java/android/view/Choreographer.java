@@ -0,0 +1,34 @@
+package android.view;
+
+import java.util.ArrayList;
+
+// Frame callbacks are collected and run when doFrame is called.
+public final class Choreographer {
+    public interface FrameCallback {
+        void doFrame(long frameTimeNanos);
+    }
+
+    private static final Choreographer instance = new Choreographer();
+
+    private final ArrayList<FrameCallback> callbacks = new ArrayList<>();
+
+    public static Choreographer getInstance() {
+        return instance;
+    }
+
+    public void postFrameCallback(FrameCallback callback) {
+        callbacks.add(callback);
+    }
+
+    public void removeFrameCallback(FrameCallback callback) {
+        callbacks.remove(callback);
+    }
+
+    public void doFrame() {
+        FrameCallback[] current = callbacks.toArray(new FrameCallback[0]);
+        callbacks.clear();
+        long now = System.nanoTime();
+        for (FrameCallback callback : current)
+            callback.doFrame(now);
+    }
+}
@@ -0,0 +1,34 @@
+package android.view;
+
+public class KeyEvent {
+    public static final int ACTION_DOWN = 0;
+    public static final int ACTION_UP = 1;
+    public static final int KEYCODE_0 = 7;
+    public static final int KEYCODE_1 = 8;
+    public static final int KEYCODE_2 = 9;
+    public static final int KEYCODE_3 = 10;
+    public static final int KEYCODE_4 = 11;
+    public static final int KEYCODE_5 = 12;
+    public static final int KEYCODE_6 = 13;
+    public static final int KEYCODE_7 = 14;
+    public static final int KEYCODE_8 = 15;
+    public static final int KEYCODE_9 = 16;
+    public static final int KEYCODE_ENTER = 66;
+    public static final int KEYCODE_DEL = 67;
+
+    private final int action;
+    private final int keyCode;
+
+    public KeyEvent(int action, int code) {
+        this.action = action;
+        this.keyCode = code;
+    }
+
+    public final int getAction() {
+        return action;
+    }
+
+    public final int getKeyCode() {
+        return keyCode;
+    }
+}
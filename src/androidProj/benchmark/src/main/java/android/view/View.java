@@ -0,0 +1,280 @@
+package android.view;
+
+import android.content.Context;
+import android.graphics.Rect;
+import android.os.IBinder;
+
+import java.util.ArrayList;
+
+// Stand-in view: keeps the state the plugin reads back and counts layout requests, draws nothing.
+public class View {
+    public static final int VISIBLE = 0;
+    public static final int INVISIBLE = 4;
+    public static final int GONE = 8;
+
+    public static final int SYSTEM_UI_FLAG_HIDE_NAVIGATION = 2;
+    public static final int SYSTEM_UI_FLAG_FULLSCREEN = 4;
+    public static final int SYSTEM_UI_FLAG_LAYOUT_STABLE = 256;
+    public static final int SYSTEM_UI_FLAG_LAYOUT_HIDE_NAVIGATION = 512;
+    public static final int SYSTEM_UI_FLAG_LAYOUT_FULLSCREEN = 1024;
+    public static final int SYSTEM_UI_FLAG_IMMERSIVE_STICKY = 4096;
+
+    public interface OnFocusChangeListener {
+        void onFocusChange(View v, boolean hasFocus);
+    }
+
+    public interface OnTouchListener {
+        boolean onTouch(View v, MotionEvent event);
+    }
+
+    public interface OnSystemUiVisibilityChangeListener {
+        void onSystemUiVisibilityChange(int visibility);
+    }
+
+    public interface OnApplyWindowInsetsListener {
+        WindowInsets onApplyWindowInsets(View v, WindowInsets insets);
+    }
+
+    public static long layoutRequests = 0;
+
+    private final Context context;
+    private ViewParent parent;
+    private ViewGroup.LayoutParams layoutParams;
+    private ViewTreeObserver viewTreeObserver;
+    private OnFocusChangeListener onFocusChangeListener;
+    private OnApplyWindowInsetsListener onApplyWindowInsetsListener;
+    private int id;
+    private int visibility = VISIBLE;
+    private boolean enabled = true;
+    private boolean focused;
+    private int left, top, right, bottom;
+    private int scrollY;
+    private float translationY;
+    private ViewPropertyAnimator animator;
+    private final ArrayList<Runnable> pending = new ArrayList<>();
+
+    public View(Context context) {
+        this.context = context;
+    }
+
+    public Context getContext() {
+        return context;
+    }
+
+    public final ViewParent getParent() {
+        return parent;
+    }
+
+    void assignParent(ViewParent parent) {
+        this.parent = parent;
+    }
+
+    public View getRootView() {
+        View root = this;
+        while (root.parent instanceof View)
+            root = (View) root.parent;
+        return root;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public final <T extends View> T findViewById(int id) {
+        return findViewTraversal(id);
+    }
+
+    @SuppressWarnings("unchecked")
+    <T extends View> T findViewTraversal(int id) {
+        return id == this.id ? (T) this : null;
+    }
+
+    public ViewGroup.LayoutParams getLayoutParams() {
+        return layoutParams;
+    }
+
+    public void setLayoutParams(ViewGroup.LayoutParams params) {
+        if (params == null)
+            throw new NullPointerException("Layout parameters cannot be null");
+        layoutParams = params;
+        requestLayout();
+    }
+
+    public void requestLayout() {
+        layoutRequests++;
+    }
+
+    public final void layout(int l, int t, int r, int b) {
+        left = l;
+        top = t;
+        right = r;
+        bottom = b;
+    }
+
+    public final int getWidth() {
+        return right - left;
+    }
+
+    public final int getHeight() {
+        return bottom - top;
+    }
+
+    public void setPadding(int left, int top, int right, int bottom) {
+    }
+
+    public void setBackgroundColor(int color) {
+    }
+
+    public void setVisibility(int visibility) {
+        this.visibility = visibility;
+    }
+
+    public int getVisibility() {
+        return visibility;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setFocusable(boolean focusable) {
+    }
+
+    public void setFocusableInTouchMode(boolean focusableInTouchMode) {
+    }
+
+    public boolean isFocused() {
+        return focused;
+    }
+
+    public final boolean requestFocus() {
+        if (!focused) {
+            focused = true;
+            if (onFocusChangeListener != null)
+                onFocusChangeListener.onFocusChange(this, true);
+        }
+        return true;
+    }
+
+    public void clearFocus() {
+        if (focused) {
+            focused = false;
+            if (onFocusChangeListener != null)
+                onFocusChangeListener.onFocusChange(this, false);
+        }
+    }
+
+    public void setOnFocusChangeListener(OnFocusChangeListener l) {
+        onFocusChangeListener = l;
+    }
+
+    public void setOnTouchListener(OnTouchListener l) {
+    }
+
+    public void setOnSystemUiVisibilityChangeListener(OnSystemUiVisibilityChangeListener l) {
+    }
+
+    public void setSystemUiVisibility(int visibility) {
+    }
+
+    public void onWindowFocusChanged(boolean hasWindowFocus) {
+    }
+
+    public boolean onKeyDown(int keyCode, KeyEvent event) {
+        return false;
+    }
+
+    public boolean onKeyUp(int keyCode, KeyEvent event) {
+        return false;
+    }
+
+    public boolean dispatchKeyEvent(KeyEvent event) {
+        return event.getAction() == KeyEvent.ACTION_DOWN
+                ? onKeyDown(event.getKeyCode(), event) : onKeyUp(event.getKeyCode(), event);
+    }
+
+    public IBinder getWindowToken() {
+        return null;
+    }
+
+    public ViewTreeObserver getViewTreeObserver() {
+        View root = getRootView();
+        if (root.viewTreeObserver == null)
+            root.viewTreeObserver = new ViewTreeObserver();
+        return root.viewTreeObserver;
+    }
+
+    public void setOnApplyWindowInsetsListener(OnApplyWindowInsetsListener listener) {
+        onApplyWindowInsetsListener = listener;
+    }
+
+    public WindowInsets onApplyWindowInsets(WindowInsets insets) {
+        return insets;
+    }
+
+    public WindowInsets dispatchApplyWindowInsets(WindowInsets insets) {
+        if (onApplyWindowInsetsListener != null)
+            return onApplyWindowInsetsListener.onApplyWindowInsets(this, insets);
+        return onApplyWindowInsets(insets);
+    }
+
+    public void getWindowVisibleDisplayFrame(Rect outRect) {
+        View root = getRootView();
+        outRect.left = 0;
+        outRect.top = 0;
+        outRect.right = root.getWidth();
+        outRect.bottom = root.getHeight();
+    }
+
+    public void setScrollY(int value) {
+        scrollY = value;
+    }
+
+    public final int getScrollY() {
+        return scrollY;
+    }
+
+    public void setTranslationY(float translationY) {
+        this.translationY = translationY;
+    }
+
+    public float getTranslationY() {
+        return translationY;
+    }
+
+    public ViewPropertyAnimator animate() {
+        if (animator == null)
+            animator = new ViewPropertyAnimator(this);
+        return animator;
+    }
+
+    // Delayed work is collected and only runs when runPending is called.
+    public boolean post(Runnable action) {
+        pending.add(action);
+        return true;
+    }
+
+    public boolean postDelayed(Runnable action, long delayMillis) {
+        pending.add(action);
+        return true;
+    }
+
+    public boolean removeCallbacks(Runnable action) {
+        return pending.remove(action);
+    }
+
+    public void runPending() {
+        Runnable[] actions = pending.toArray(new Runnable[0]);
+        pending.clear();
+        for (Runnable action : actions)
+            action.run();
+    }
+}
@@ -0,0 +1,106 @@
+package android.view;
+
+import android.content.Context;
+
+import java.util.ArrayList;
+
+public abstract class ViewGroup extends View implements ViewParent {
+    public static class LayoutParams {
+        public static final int MATCH_PARENT = -1;
+        public static final int WRAP_CONTENT = -2;
+
+        public int width;
+        public int height;
+
+        public LayoutParams(int width, int height) {
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    public static class MarginLayoutParams extends LayoutParams {
+        public int leftMargin;
+        public int topMargin;
+        public int rightMargin;
+        public int bottomMargin;
+
+        public MarginLayoutParams(int width, int height) {
+            super(width, height);
+        }
+
+        public void setMargins(int left, int top, int right, int bottom) {
+            leftMargin = left;
+            topMargin = top;
+            rightMargin = right;
+            bottomMargin = bottom;
+        }
+    }
+
+    private final ArrayList<View> children = new ArrayList<>();
+
+    public ViewGroup(Context context) {
+        super(context);
+    }
+
+    public int getChildCount() {
+        return children.size();
+    }
+
+    public View getChildAt(int index) {
+        return index >= 0 && index < children.size() ? children.get(index) : null;
+    }
+
+    public void addView(View child) {
+        addView(child, child.getLayoutParams() != null ? child.getLayoutParams() : generateDefaultLayoutParams());
+    }
+
+    public void addView(View child, LayoutParams params) {
+        if (child.getParent() != null)
+            throw new IllegalStateException("The specified child already has a parent.");
+        child.setLayoutParams(params);
+        child.assignParent(this);
+        children.add(child);
+        child.layout(0, 0, params.width > 0 ? params.width : getWidth(), params.height > 0 ? params.height : getHeight());
+        requestLayout();
+    }
+
+    public void removeView(View view) {
+        if (children.remove(view)) {
+            if (view.isFocused())
+                view.clearFocus();
+            view.assignParent(null);
+            requestLayout();
+        }
+    }
+
+    public void removeAllViews() {
+        for (View child : children.toArray(new View[0]))
+            removeView(child);
+    }
+
+    // Every child gets the insets, as on API 30+.
+    @Override
+    public WindowInsets dispatchApplyWindowInsets(WindowInsets insets) {
+        WindowInsets result = super.dispatchApplyWindowInsets(insets);
+        for (View child : children.toArray(new View[0]))
+            child.dispatchApplyWindowInsets(insets);
+        return result;
+    }
+
+    protected LayoutParams generateDefaultLayoutParams() {
+        return new LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
+    }
+
+    @Override
+    <T extends View> T findViewTraversal(int id) {
+        T found = super.findViewTraversal(id);
+        if (found != null)
+            return found;
+        for (View child : children) {
+            found = child.findViewTraversal(id);
+            if (found != null)
+                return found;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,32 @@
+package android.view;
+
+// Applies the target values as soon as the animation starts.
+public class ViewPropertyAnimator {
+    private final View view;
+    private float translationY;
+    private boolean hasTranslationY;
+
+    ViewPropertyAnimator(View view) {
+        this.view = view;
+    }
+
+    public ViewPropertyAnimator translationY(float value) {
+        translationY = value;
+        hasTranslationY = true;
+        return this;
+    }
+
+    public ViewPropertyAnimator setDuration(long duration) {
+        return this;
+    }
+
+    public void start() {
+        if (hasTranslationY)
+            view.setTranslationY(translationY);
+        hasTranslationY = false;
+    }
+
+    public void cancel() {
+        hasTranslationY = false;
+    }
+}
@@ -0,0 +1,24 @@
+package android.view;
+
+import java.util.ArrayList;
+
+public final class ViewTreeObserver {
+    public interface OnGlobalLayoutListener {
+        void onGlobalLayout();
+    }
+
+    private final ArrayList<OnGlobalLayoutListener> globalLayoutListeners = new ArrayList<>();
+
+    public void addOnGlobalLayoutListener(OnGlobalLayoutListener listener) {
+        globalLayoutListeners.add(listener);
+    }
+
+    public void removeOnGlobalLayoutListener(OnGlobalLayoutListener victim) {
+        globalLayoutListeners.remove(victim);
+    }
+
+    public final void dispatchOnGlobalLayout() {
+        for (OnGlobalLayoutListener listener : globalLayoutListeners.toArray(new OnGlobalLayoutListener[0]))
+            listener.onGlobalLayout();
+    }
+}
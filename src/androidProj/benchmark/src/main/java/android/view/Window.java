@@ -0,0 +1,31 @@
+package android.view;
+
+import android.app.Activity;
+import android.content.Context;
+import android.widget.FrameLayout;
+
+// Decor view holding a content FrameLayout with a single leaf view, the shape InitPluginMsgHandler expects.
+public class Window {
+    private final FrameLayout decorView;
+
+    public Window(final Context context) {
+        // Keys reaching the window go to the activity first, which is where Unity takes them.
+        decorView = new FrameLayout(context) {
+            @Override
+            public boolean dispatchKeyEvent(KeyEvent event) {
+                return context instanceof Activity ? ((Activity) context).dispatchKeyEvent(event)
+                        : super.dispatchKeyEvent(event);
+            }
+        };
+        FrameLayout content = new FrameLayout(context);
+        content.setId(android.R.id.content);
+        content.addView(new View(context));
+        decorView.addView(content);
+        decorView.layout(0, 0, 1080, 1920);
+        content.layout(0, 0, 1080, 1920);
+    }
+
+    public View getDecorView() {
+        return decorView;
+    }
+}
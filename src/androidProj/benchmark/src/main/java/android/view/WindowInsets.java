@@ -0,0 +1,13 @@
+package android.view;
+
+public final class WindowInsets {
+    private final int systemWindowInsetBottom;
+
+    public WindowInsets(int systemWindowInsetBottom) {
+        this.systemWindowInsetBottom = systemWindowInsetBottom;
+    }
+
+    public int getSystemWindowInsetBottom() {
+        return systemWindowInsetBottom;
+    }
+}
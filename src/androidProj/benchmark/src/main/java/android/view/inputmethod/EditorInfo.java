@@ -0,0 +1,9 @@
+package android.view.inputmethod;
+
+public class EditorInfo {
+    public static final int IME_ACTION_GO = 2;
+    public static final int IME_ACTION_SEND = 4;
+    public static final int IME_ACTION_NEXT = 5;
+    public static final int IME_ACTION_DONE = 6;
+    public static final int IME_FLAG_NO_EXTRACT_UI = 268435456;
+}
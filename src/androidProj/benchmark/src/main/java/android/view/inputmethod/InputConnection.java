@@ -0,0 +1,7 @@
+package android.view.inputmethod;
+
+import android.view.KeyEvent;
+
+public interface InputConnection {
+    boolean sendKeyEvent(KeyEvent event);
+}
@@ -0,0 +1,19 @@
+package android.view.inputmethod;
+
+import android.view.KeyEvent;
+
+public class InputConnectionWrapper implements InputConnection {
+    private InputConnection target;
+
+    public InputConnectionWrapper(InputConnection target, boolean mutable) {
+        this.target = target;
+    }
+
+    public void setTarget(InputConnection target) {
+        this.target = target;
+    }
+
+    public boolean sendKeyEvent(KeyEvent event) {
+        return target.sendKeyEvent(event);
+    }
+}
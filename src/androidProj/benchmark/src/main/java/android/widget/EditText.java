@@ -0,0 +1,17 @@
+package android.widget;
+
+import android.content.Context;
+
+public class EditText extends TextView {
+    public EditText(Context context) {
+        super(context);
+    }
+
+    public void setSelection(int index) {
+        setSelectionInternal(index, index);
+    }
+
+    public void setSelection(int start, int stop) {
+        setSelectionInternal(start, stop);
+    }
+}
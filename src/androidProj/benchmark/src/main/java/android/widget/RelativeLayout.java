@@ -0,0 +1,16 @@
+package android.widget;
+
+import android.content.Context;
+import android.view.ViewGroup;
+
+public class RelativeLayout extends ViewGroup {
+    public static class LayoutParams extends ViewGroup.MarginLayoutParams {
+        public LayoutParams(int w, int h) {
+            super(w, h);
+        }
+    }
+
+    public RelativeLayout(Context context) {
+        super(context);
+    }
+}
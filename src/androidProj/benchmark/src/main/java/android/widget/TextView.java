@@ -0,0 +1,158 @@
+package android.widget;
+
+import android.content.Context;
+import android.graphics.Typeface;
+import android.text.Editable;
+import android.text.InputFilter;
+import android.text.SpannableStringBuilder;
+import android.text.TextWatcher;
+import android.view.KeyEvent;
+import android.view.View;
+import android.view.inputmethod.EditorInfo;
+import android.view.inputmethod.InputConnection;
+
+import java.util.ArrayList;
+
+public class TextView extends View {
+    public interface OnEditorActionListener {
+        boolean onEditorAction(TextView v, int actionId, KeyEvent event);
+    }
+
+    private final ArrayList<TextWatcher> watchers = new ArrayList<>();
+    private Editable text = new SpannableStringBuilder("", watchers);
+    private InputFilter[] filters = new InputFilter[0];
+    private CharSequence hint;
+    private int selectionStart;
+    private int selectionEnd;
+
+    public TextView(Context context) {
+        super(context);
+    }
+
+    // The IME's connection: its key events go through the window, as on a device.
+    public InputConnection onCreateInputConnection(EditorInfo outAttrs) {
+        return new InputConnection() {
+            @Override
+            public boolean sendKeyEvent(KeyEvent event) {
+                return getRootView().dispatchKeyEvent(event);
+            }
+        };
+    }
+
+    // Backspace and the digits edit at the selection, the other keys are not handled.
+    @Override
+    public boolean onKeyDown(int keyCode, KeyEvent event) {
+        int start = Math.min(selectionStart, selectionEnd);
+        int end = Math.max(selectionStart, selectionEnd);
+        if (keyCode == KeyEvent.KEYCODE_DEL) {
+            if (start == end && start > 0)
+                start--;
+            text.delete(start, end);
+            setSelectionInternal(start, start);
+            return true;
+        }
+        if (keyCode >= KeyEvent.KEYCODE_0 && keyCode <= KeyEvent.KEYCODE_9) {
+            text.replace(start, end, String.valueOf((char) ('0' + keyCode - KeyEvent.KEYCODE_0)));
+            setSelectionInternal(start + 1, start + 1);
+            return true;
+        }
+        return false;
+    }
+
+    public void setText(CharSequence newText) {
+        CharSequence source = newText == null ? "" : newText;
+        for (InputFilter f : filters) {
+            CharSequence repl = f.filter(source, 0, source.length(), text, 0, text.length());
+            if (repl != null)
+                source = repl;
+        }
+        int oldLength = text.length();
+        for (TextWatcher w : watchers.toArray(new TextWatcher[0]))
+            w.beforeTextChanged(text, 0, oldLength, source.length());
+        text = new SpannableStringBuilder(source, watchers);
+        text.setFilters(filters);
+        for (TextWatcher w : watchers.toArray(new TextWatcher[0]))
+            w.onTextChanged(text, 0, oldLength, source.length());
+        for (TextWatcher w : watchers.toArray(new TextWatcher[0]))
+            w.afterTextChanged(text);
+        setSelectionInternal(Math.min(selectionStart, text.length()), Math.min(selectionEnd, text.length()));
+        requestLayout();
+    }
+
+    public Editable getText() {
+        return text;
+    }
+
+    public int length() {
+        return text.length();
+    }
+
+    public void setHint(CharSequence hint) {
+        this.hint = hint;
+    }
+
+    public CharSequence getHint() {
+        return hint;
+    }
+
+    public void setFilters(InputFilter[] filters) {
+        this.filters = filters;
+        text.setFilters(filters);
+    }
+
+    public InputFilter[] getFilters() {
+        return filters;
+    }
+
+    public void addTextChangedListener(TextWatcher watcher) {
+        watchers.add(watcher);
+    }
+
+    public void removeTextChangedListener(TextWatcher watcher) {
+        watchers.remove(watcher);
+    }
+
+    public void setOnEditorActionListener(OnEditorActionListener l) {
+    }
+
+    public void setSingleLine(boolean singleLine) {
+    }
+
+    public void setInputType(int type) {
+    }
+
+    public void setImeOptions(int imeOptions) {
+    }
+
+    public void setGravity(int gravity) {
+    }
+
+    public void setTextSize(int unit, float size) {
+    }
+
+    public void setTextColor(int color) {
+    }
+
+    public void setHintTextColor(int color) {
+    }
+
+    public void setTypeface(Typeface tf) {
+    }
+
+    public int getSelectionStart() {
+        return selectionStart;
+    }
+
+    public int getSelectionEnd() {
+        return selectionEnd;
+    }
+
+    void setSelectionInternal(int start, int stop) {
+        selectionStart = start;
+        selectionEnd = stop;
+        onSelectionChanged(start, stop);
+    }
+
+    protected void onSelectionChanged(int selStart, int selEnd) {
+    }
+}
@@ -0,0 +1,15 @@
+package com.unity3d.player;
+
+import android.app.Activity;
+
+// Stand-in for the Unity player: messages to Unity are only counted.
+public class UnityPlayer {
+    public static Activity currentActivity;
+    public static long messagesSent = 0;
+    public static long charsSent = 0;
+
+    public static void UnitySendMessage(String gameObject, String methodName, String message) {
+        messagesSent++;
+        charsSent += message.length();
+    }
+}
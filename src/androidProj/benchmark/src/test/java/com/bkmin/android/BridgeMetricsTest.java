@@ -0,0 +1,70 @@
+package com.bkmin.android;
+
+import android.app.Activity;
+import android.view.Choreographer;
+
+import com.unity3d.player.UnityPlayer;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class BridgeMetricsTest {
+    @After
+    public void tearDown() {
+        BridgeMetrics.setEnabled(false);
+        BridgeMetrics.reset();
+    }
+
+    @Test
+    public void everyEventIsCountedByName() {
+        BridgeMetrics.reset();
+        BridgeMetrics.setEnabled(true);
+        for (String msg : EditBox.MSG_NAMES)
+            BridgeMetrics.recordOutbound(msg, BridgeMetrics.startOutbound());
+        BridgeMetrics.recordOutbound(BridgeMetrics.OUT_BATCH, BridgeMetrics.startOutbound());
+        BridgeMetrics.recordOutbound("NoSuchEvent", BridgeMetrics.startOutbound());
+
+        JSONObject out = new JSONObject(BridgeMetrics.dump()).getJSONObject("out");
+        for (String msg : EditBox.MSG_NAMES)
+            assertEquals(msg, 1, out.getJSONObject(msg).getInt("count"));
+        assertEquals(1, out.getJSONObject(BridgeMetrics.OUT_BATCH).getInt("count"));
+        assertEquals(1, out.getJSONObject("Other").getInt("count"));
+    }
+
+    // With outbound batching, each event is counted by name when it is added, and the array send as Batch.
+    @Test
+    public void batchedEventsAreCountedByName() throws Exception {
+        UnityPlayer.currentActivity = new Activity();
+        NativeEditPlugin.InitPluginMsgHandler("Handler", NativeEditPlugin.PROTOCOL_BINARY, 0);
+        try {
+            BridgeMetrics.reset();
+            BridgeMetrics.setEnabled(true);
+            NativeEditPlugin.SetOutboundBatching(true);
+            NativeEditPlugin.SendUnityMessage(new JSONObject().put("msg", EditBox.MSG_NAMES[0]));
+            NativeEditPlugin.SendUnityMessage(new JSONObject().put("msg", EditBox.MSG_NAMES[0]));
+            NativeEditPlugin.SendUnityMessage(new JSONObject().put("msg", EditBox.MSG_NAMES[1]));
+            Choreographer.getInstance().doFrame();
+
+            JSONObject out = new JSONObject(BridgeMetrics.dump()).getJSONObject("out");
+            assertEquals(2, out.getJSONObject(EditBox.MSG_NAMES[0]).getInt("count"));
+            assertEquals(1, out.getJSONObject(EditBox.MSG_NAMES[1]).getInt("count"));
+            assertEquals(1, out.getJSONObject(BridgeMetrics.OUT_BATCH).getInt("count"));
+        } finally {
+            NativeEditPlugin.SetOutboundBatching(false);
+            NativeEditPlugin.ClosePluginMsgHandler();
+            UnityPlayer.currentActivity = null;
+            EditTextPool.clear();
+        }
+    }
+
+    @Test
+    public void nothingIsRecordedWhileDisabled() {
+        BridgeMetrics.reset();
+        BridgeMetrics.recordOutbound(EditBox.MSG_NAMES[0], BridgeMetrics.startOutbound());
+        assertFalse(new JSONObject(BridgeMetrics.dump()).getJSONObject("out").has(EditBox.MSG_NAMES[0]));
+    }
+}
@@ -0,0 +1,37 @@
+package com.bkmin.android;
+
+import android.content.Context;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class EditTextPoolTest {
+    @After
+    public void tearDown() {
+        EditTextPool.clear();
+    }
+
+    @Test
+    public void releasedViewIsReused() {
+        Context context = new Context();
+        EditBox.EditTextLifeCycle edit = EditTextPool.acquire(context);
+        edit.setText("typed");
+        EditTextPool.release(edit);
+        EditBox.EditTextLifeCycle reused = EditTextPool.acquire(context);
+        assertSame(edit, reused);
+        assertNull(reused.observerBox);
+        assertNotSame(edit, EditTextPool.acquire(context));
+    }
+
+    @Test
+    public void pooledViewIgnoresWindowFocus() {
+        EditTextPool.prewarm(new Context());
+        EditBox.EditTextLifeCycle edit = EditTextPool.acquire(new Context());
+        edit.onWindowFocusChanged(false);
+        edit.onWindowFocusChanged(true);
+    }
+}
@@ -0,0 +1,55 @@
+package com.bkmin.android;
+
+import android.text.SpannableString;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class InputValidatorTest {
+    private static final SpannableStringBuilder EMPTY = new SpannableStringBuilder("");
+
+    @Test
+    public void plainSourceGivesPlainText() {
+        InputValidator validator = InputValidator.create("IntegerNumber", 0);
+        assertEquals("12", validator.filter("1a2", 0, 3, EMPTY, 0, 0));
+        assertNull(validator.filter("12", 0, 2, EMPTY, 0, 0));
+    }
+
+    // The IME marks what it is composing with a span. Losing it ends the composition on every filtered key.
+    @Test
+    public void caseChangeKeepsComposingSpan() {
+        Object composing = new Object();
+        SpannableString source = new SpannableString("xjOHNx");
+        source.setSpan(composing, 1, 5, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE | Spanned.SPAN_COMPOSING);
+
+        CharSequence filtered = InputValidator.create("Name", 0).filter(source, 1, 5, EMPTY, 0, 0);
+        assertEquals("John", filtered.toString());
+        assertTrue(filtered instanceof Spanned);
+        Spanned spanned = (Spanned) filtered;
+        assertEquals(0, spanned.getSpanStart(composing));
+        assertEquals(4, spanned.getSpanEnd(composing));
+        assertEquals(Spanned.SPAN_EXCLUSIVE_EXCLUSIVE | Spanned.SPAN_COMPOSING, spanned.getSpanFlags(composing));
+    }
+
+    @Test
+    public void droppedCharactersMoveTheSpans() {
+        Object composing = new Object();
+        Object last = new Object();
+        SpannableString source = new SpannableString("1a2b3");
+        source.setSpan(composing, 0, 5, Spanned.SPAN_COMPOSING);
+        source.setSpan(last, 4, 5, 0);
+
+        CharSequence filtered = InputValidator.create("IntegerNumber", 0).filter(source, 0, 5, EMPTY, 0, 0);
+        assertEquals("123", filtered.toString());
+        Spanned spanned = (Spanned) filtered;
+        assertEquals(0, spanned.getSpanStart(composing));
+        assertEquals(3, spanned.getSpanEnd(composing));
+        assertEquals(2, spanned.getSpanStart(last));
+        assertEquals(3, spanned.getSpanEnd(last));
+    }
+}
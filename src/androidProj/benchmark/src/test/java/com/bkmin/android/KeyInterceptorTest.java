@@ -0,0 +1,82 @@
+package com.bkmin.android;
+
+import android.app.Activity;
+import android.view.KeyEvent;
+import android.view.inputmethod.EditorInfo;
+import android.view.inputmethod.InputConnection;
+import android.widget.EditText;
+
+import com.unity3d.player.UnityPlayer;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+// Backspace, enter and the digits sent by the IME go to the EditText instead of the window, where Unity's activity
+// would take them. Unity never sees those keys, so it has nothing to send back as AndroidKeyDown.
+public class KeyInterceptorTest {
+    private Activity activity;
+
+    @Before
+    public void setUp() {
+        activity = new Activity();
+        UnityPlayer.currentActivity = activity;
+        NativeEditPlugin.InitPluginMsgHandler("Handler", NativeEditPlugin.PROTOCOL_BINARY, 0);
+    }
+
+    @After
+    public void tearDown() {
+        NativeEditPlugin.ClosePluginMsgHandler();
+        UnityPlayer.currentActivity = null;
+        EditTextPool.clear();
+    }
+
+    @Test
+    public void interceptedKeysSkipUnity() throws Exception {
+        InputConnection ic = focusedBox("12");
+        ic.sendKeyEvent(new KeyEvent(KeyEvent.ACTION_DOWN, KeyEvent.KEYCODE_DEL));
+        ic.sendKeyEvent(new KeyEvent(KeyEvent.ACTION_DOWN, KeyEvent.KEYCODE_7));
+        assertEquals("17", text(1));
+        assertEquals(0, activity.keysDispatched);
+    }
+
+    @Test
+    public void otherKeysTakeTheWindow() throws Exception {
+        InputConnection ic = focusedBox("12");
+        ic.sendKeyEvent(new KeyEvent(KeyEvent.ACTION_DOWN, 29));
+        assertEquals("12", text(1));
+        assertEquals(1, activity.keysDispatched);
+    }
+
+    @Test
+    public void noHardwareKeyboardByDefault() {
+        assertFalse(NativeEditPlugin.HasHardwareKeyboard());
+    }
+
+    private static InputConnection focusedBox(String text) {
+        EditBox.CreateParams p = new EditBox.CreateParams();
+        p.width = 0.5;
+        p.height = 0.1;
+        p.fontSize = 20;
+        p.contentType = "Standard";
+        p.keyboardType = "Default";
+        p.inputType = "Standard";
+        p.returnKeyType = "Done";
+        p.alignment = "MiddleLeft";
+        NativeEditPlugin.SendUnityBinaryMsgToPlugin(1, MsgCodec.encodeCreate(p));
+        NativeEditPlugin.SendUnityBinaryMsgToPlugin(1, MsgCodec.encodeSetText(text));
+        NativeEditPlugin.SendUnityBinaryMsgToPlugin(1, MsgCodec.encodeSetFocus(true));
+
+        EditText edit = (EditText) NativeEditPlugin.getHost().mainLayout.getChildAt(0);
+        edit.setSelection(text.length());
+        return edit.onCreateInputConnection(new EditorInfo());
+    }
+
+    private static String text(int id) throws Exception {
+        return new JSONObject(NativeEditPlugin.GetEditBoxState(id)).getString("text");
+    }
+}
@@ -0,0 +1,407 @@
+package com.bkmin.android;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+// Round trips every binary message through the MsgCodec encoders and the decoders the plugin uses.
+public class MsgCodecTest {
+    private static EditBox.CreateParams params() {
+        EditBox.CreateParams p = new EditBox.CreateParams();
+        p.x = 0.125;
+        p.y = 0.25;
+        p.width = 0.5;
+        p.height = 0.0625;
+        p.characterLimit = 40;
+        p.textColor = 0xff102030;
+        p.backColor = 0x80405060;
+        p.placeHolderColor = 0x01020304;
+        p.fontSize = 28.5f;
+        p.multiline = true;
+        p.contentType = "EmailAddress";
+        p.keyboardType = "URL";
+        p.inputType = "Password";
+        p.returnKeyType = "Go";
+        p.alignment = "LowerRight";
+        p.placeHolder = "Entrez l'adresse é 😀";
+        p.font = "fonts/Roboto.ttf";
+        p.textChangeMode = EditBox.TEXT_CHANGE_DELTA;
+        p.textChangeInterval = 150;
+        p.characterLimitUnit = CharacterLimitFilter.UNIT_CODE_POINTS;
+        p.validationRule = 7;
+        return p;
+    }
+
+    private static void assertParams(EditBox.CreateParams expected, EditBox.CreateParams actual) {
+        assertEquals(expected.x, actual.x, 1e-6);
+        assertEquals(expected.y, actual.y, 1e-6);
+        assertEquals(expected.width, actual.width, 1e-6);
+        assertEquals(expected.height, actual.height, 1e-6);
+        assertEquals(expected.characterLimit, actual.characterLimit);
+        assertEquals(expected.textColor, actual.textColor);
+        assertEquals(expected.backColor, actual.backColor);
+        assertEquals(expected.placeHolderColor, actual.placeHolderColor);
+        assertEquals(expected.fontSize, actual.fontSize, 0f);
+        assertEquals(expected.multiline, actual.multiline);
+        assertEquals(expected.contentType, actual.contentType);
+        assertEquals(expected.keyboardType, actual.keyboardType);
+        assertEquals(expected.inputType, actual.inputType);
+        assertEquals(expected.returnKeyType, actual.returnKeyType);
+        assertEquals(expected.alignment, actual.alignment);
+        assertEquals(expected.placeHolder, actual.placeHolder);
+        assertEquals(expected.font, actual.font);
+        assertEquals(expected.textChangeMode, actual.textChangeMode);
+        assertEquals(expected.textChangeInterval, actual.textChangeInterval);
+        assertEquals(expected.characterLimitUnit, actual.characterLimitUnit);
+        assertEquals(expected.validationRule, actual.validationRule);
+    }
+
+    private static EditCommand decode(byte[] msg) {
+        return EditCommand.fromBinary(1, msg);
+    }
+
+    @Test
+    public void opNamesMatchOpcodes() {
+        for (int op = 1; op < MsgCodec.OP_NAMES.length; op++)
+            assertEquals(op, MsgCodec.opOf(MsgCodec.OP_NAMES[op]));
+        assertEquals(0, MsgCodec.opOf("NoSuchMsg"));
+    }
+
+    @Test
+    public void create() {
+        EditBox.CreateParams p = params();
+        MsgCodec.Reader reader = new MsgCodec.Reader().reset(MsgCodec.encodeCreate(p));
+        assertEquals(MsgCodec.OP_CREATE, reader.readByte());
+        EditBox.CreateParams decoded = new EditBox.CreateParams();
+        MsgCodec.decodeCreate(reader, decoded);
+        assertParams(p, decoded);
+        assertEquals(0, reader.remaining());
+    }
+
+    @Test
+    public void createWithoutOptionalFields() {
+        EditBox.CreateParams p = params();
+        byte[] msg = MsgCodec.encodeCreate(p);
+
+        // Without validationRule.
+        EditBox.CreateParams decoded = decodeCreatePrefix(msg, msg.length - 4);
+        assertEquals(0, decoded.validationRule);
+        assertEquals(p.characterLimitUnit, decoded.characterLimitUnit);
+        assertEquals(p.textChangeMode, decoded.textChangeMode);
+
+        // Without characterLimitUnit either.
+        decoded = decodeCreatePrefix(msg, msg.length - 5);
+        assertEquals(CharacterLimitFilter.UNIT_CODE_UNITS, decoded.characterLimitUnit);
+        assertEquals(p.textChangeMode, decoded.textChangeMode);
+        assertEquals(p.textChangeInterval, decoded.textChangeInterval);
+
+        // The original layout, ending with font.
+        decoded = decodeCreatePrefix(msg, msg.length - 10);
+        assertEquals(EditBox.TEXT_CHANGE_FULL, decoded.textChangeMode);
+        assertEquals(0, decoded.textChangeInterval);
+        assertEquals(p.font, decoded.font);
+    }
+
+    private static EditBox.CreateParams decodeCreatePrefix(byte[] msg, int length) {
+        MsgCodec.Reader reader = new MsgCodec.Reader().reset(msg, 0, length);
+        assertEquals(MsgCodec.OP_CREATE, reader.readByte());
+        EditBox.CreateParams decoded = new EditBox.CreateParams();
+        MsgCodec.decodeCreate(reader, decoded);
+        return decoded;
+    }
+
+    @Test
+    public void registerStyle() {
+        EditBox.CreateParams p = params();
+        MsgCodec.Reader reader = new MsgCodec.Reader().reset(MsgCodec.encodeRegisterStyle(12, p));
+        assertEquals(MsgCodec.OP_REGISTER_STYLE, reader.readByte());
+        assertEquals(12, reader.readInt());
+        EditBox.CreateParams decoded = new EditBox.CreateParams();
+        MsgCodec.decodeCreate(reader, decoded);
+        assertParams(p, decoded);
+    }
+
+    // A JSON style needs the keys of a CreateEdit, like the binary one carries all the OP_CREATE fields.
+    @Test
+    public void jsonRegisterStyleNeedsCreateKeys() {
+        String keys = "\"msg\":\"RegisterStyle\",\"styleId\":%d,\"fontSize\":18,\"placeHolder\":\"\",\"font\":\"\","
+                + "\"characterLimit\":0,\"textColor_r\":1,\"textColor_g\":1,\"textColor_b\":1,\"textColor_a\":1,"
+                + "\"backColor_r\":0,\"backColor_g\":0,\"backColor_b\":0,\"backColor_a\":1,"
+                + "\"placeHolderColor_r\":0.5,\"placeHolderColor_g\":0.5,\"placeHolderColor_b\":0.5,\"placeHolderColor_a\":1,"
+                + "\"contentType\":\"Standard\",\"return_key_type\":\"Done\",\"align\":\"MiddleLeft\",\"multiline\":false";
+        try {
+            EditCommand.fromJson(-1, "{" + String.format(keys, 41).replace("\"fontSize\":18,", "") + "}");
+            assertNull(EditStyles.get(41));
+
+            EditCommand.fromJson(-1, "{" + String.format(keys, 42) + "}");
+            EditBox.CreateParams style = EditStyles.get(42).params;
+            assertEquals(18f, style.fontSize, 0f);
+            assertEquals(0xffffffff, style.textColor);
+        } finally {
+            EditStyles.clear();
+        }
+    }
+
+    @Test
+    public void createStyled() {
+        EditBox.CreateParams p = params();
+        MsgCodec.Reader reader = new MsgCodec.Reader()
+                .reset(MsgCodec.encodeCreateStyled(3, 0.125f, 0.25f, 0.5f, 0.0625f, ALL_OVERRIDES, p));
+        assertEquals(MsgCodec.OP_CREATE_STYLED, reader.readByte());
+        assertEquals(3, reader.readInt());
+        EditBox.CreateParams decoded = new EditBox.CreateParams();
+        decoded.x = reader.readFloat();
+        decoded.y = reader.readFloat();
+        decoded.width = reader.readFloat();
+        decoded.height = reader.readFloat();
+        assertEquals(ALL_OVERRIDES, MsgCodec.decodeOverrides(reader, decoded));
+        assertParams(p, decoded);
+        assertEquals(0, reader.remaining());
+    }
+
+    private static final int ALL_OVERRIDES = (1 << 17) - 1;
+
+    // Keys of a JSON CreateEdit with a styleId, indexed by the bit of the OVERRIDE_* constant they match.
+    private static String jsonOverride(int bit, EditBox.CreateParams p) {
+        switch (1 << bit) {
+            case MsgCodec.OVERRIDE_CHARACTER_LIMIT:
+                return "\"characterLimit\":" + p.characterLimit;
+            case MsgCodec.OVERRIDE_TEXT_COLOR:
+                return jsonColor("textColor", p.textColor);
+            case MsgCodec.OVERRIDE_BACK_COLOR:
+                return jsonColor("backColor", p.backColor);
+            case MsgCodec.OVERRIDE_PLACEHOLDER_COLOR:
+                return jsonColor("placeHolderColor", p.placeHolderColor);
+            case MsgCodec.OVERRIDE_FONT_SIZE:
+                return "\"fontSize\":" + p.fontSize;
+            case MsgCodec.OVERRIDE_MULTILINE:
+                return "\"multiline\":" + p.multiline;
+            case MsgCodec.OVERRIDE_CONTENT_TYPE:
+                return "\"contentType\":\"" + p.contentType + "\"";
+            case MsgCodec.OVERRIDE_KEYBOARD_TYPE:
+                return "\"keyboardType\":\"" + p.keyboardType + "\"";
+            case MsgCodec.OVERRIDE_INPUT_TYPE:
+                return "\"inputType\":\"" + p.inputType + "\"";
+            case MsgCodec.OVERRIDE_RETURN_KEY_TYPE:
+                return "\"return_key_type\":\"" + p.returnKeyType + "\"";
+            case MsgCodec.OVERRIDE_ALIGN:
+                return "\"align\":\"" + p.alignment + "\"";
+            case MsgCodec.OVERRIDE_PLACEHOLDER:
+                return "\"placeHolder\":\"" + p.placeHolder + "\"";
+            case MsgCodec.OVERRIDE_FONT:
+                return "\"font\":\"" + p.font + "\"";
+            case MsgCodec.OVERRIDE_TEXT_CHANGE_MODE:
+                return "\"textChangeMode\":\"" + p.textChangeMode + "\"";
+            case MsgCodec.OVERRIDE_TEXT_CHANGE_INTERVAL:
+                return "\"textChangeInterval\":" + p.textChangeInterval;
+            case MsgCodec.OVERRIDE_CHARACTER_LIMIT_UNIT:
+                return "\"characterLimitUnit\":\"" + p.characterLimitUnit + "\"";
+            case MsgCodec.OVERRIDE_VALIDATION_RULE:
+                return "\"validationRule\":" + p.validationRule;
+        }
+        throw new AssertionError("No override for bit " + bit);
+    }
+
+    private static String jsonColor(String name, int argb) {
+        return String.format("\"%1$s_r\":%2$s,\"%1$s_g\":%3$s,\"%1$s_b\":%4$s,\"%1$s_a\":%5$s", name,
+                channel(argb >> 16), channel(argb >> 8), channel(argb), channel(argb >>> 24));
+    }
+
+    // Mid-channel, so the plugin's (int) (255.0f * value) gives the channel back.
+    private static double channel(int v) {
+        return ((v & 0xff) + 0.5) / 255.0;
+    }
+
+    // The binary CreateEditStyled and a JSON CreateEdit with a styleId override the same fields the same way.
+    @Test
+    public void styledOverridesMatchJson() {
+        EditBox.CreateParams style = new EditBox.CreateParams();
+        style.contentType = "Standard";
+        style.keyboardType = "Default";
+        style.inputType = "Standard";
+        style.returnKeyType = "Done";
+        style.alignment = "MiddleLeft";
+        EditStyles.register(5, style, null);
+        try {
+            EditBox.CreateParams p = params();
+            for (int bit = 0; bit < 17; bit++) {
+                EditCommand binary = decode(MsgCodec.encodeCreateStyled(5, 0.125f, 0.25f, 0.5f, 0.0625f, 1 << bit, p));
+                EditCommand json = EditCommand.fromJson(1, "{\"msg\":\"CreateEdit\",\"styleId\":5,"
+                        + "\"x\":0.125,\"y\":0.25,\"width\":0.5,\"height\":0.0625," + jsonOverride(bit, p) + "}");
+                assertEquals(MsgCodec.OP_CREATE, binary.op);
+                assertSpec("bit " + bit, json.create, binary.create);
+            }
+
+            EditCommand named = EditCommand.fromJson(1, "{\"msg\":\"CreateEditStyled\",\"styleId\":5,"
+                    + "\"x\":0,\"y\":0,\"width\":1,\"height\":1}");
+            assertEquals(MsgCodec.OP_CREATE, named.op);
+            EditCommand noStyle = EditCommand.fromJson(1, "{\"msg\":\"CreateEditStyled\","
+                    + "\"x\":0,\"y\":0,\"width\":1,\"height\":1}");
+            assertEquals(0, noStyle.op);
+        } finally {
+            EditStyles.clear();
+        }
+    }
+
+    private static void assertSpec(String what, EditBox.CreateSpec expected, EditBox.CreateSpec actual) {
+        assertEquals(what, expected.x, actual.x, 1e-6);
+        assertEquals(what, expected.y, actual.y, 1e-6);
+        assertEquals(what, expected.width, actual.width, 1e-6);
+        assertEquals(what, expected.height, actual.height, 1e-6);
+        assertEquals(what, expected.characterLimit, actual.characterLimit);
+        assertEquals(what, expected.characterLimitUnit, actual.characterLimitUnit);
+        assertEquals(what, expected.textColor, actual.textColor);
+        assertEquals(what, expected.backColor, actual.backColor);
+        assertEquals(what, expected.placeHolderColor, actual.placeHolderColor);
+        assertEquals(what, expected.fontSize, actual.fontSize, 0f);
+        assertEquals(what, expected.placeHolder, actual.placeHolder);
+        assertEquals(what, expected.multiline, actual.multiline);
+        assertEquals(what, expected.inputType, actual.inputType);
+        assertEquals(what, expected.gravity, actual.gravity);
+        assertEquals(what, expected.imeOptions, actual.imeOptions);
+        assertEquals(what, expected.validator == null, actual.validator == null);
+        assertEquals(what, expected.textChangeMode, actual.textChangeMode);
+        assertEquals(what, expected.textChangeInterval, actual.textChangeInterval);
+    }
+
+    @Test
+    public void remove() {
+        assertEquals(MsgCodec.OP_REMOVE, decode(MsgCodec.encodeRemove()).op);
+    }
+
+    @Test
+    public void setText() {
+        EditCommand cmd = decode(MsgCodec.encodeSetText("aé中😀"));
+        assertEquals(MsgCodec.OP_SET_TEXT, cmd.op);
+        assertEquals("aé中😀", cmd.text);
+        assertEquals("", decode(MsgCodec.encodeSetText(null)).text);
+    }
+
+    @Test
+    public void setRect() {
+        EditCommand cmd = decode(MsgCodec.encodeSetRect(0.1f, 0.2f, 0.3f, 0.4f));
+        assertEquals(MsgCodec.OP_SET_RECT, cmd.op);
+        assertEquals(0.1f, (float) cmd.x, 0f);
+        assertEquals(0.2f, (float) cmd.y, 0f);
+        assertEquals(0.3f, (float) cmd.width, 0f);
+        assertEquals(0.4f, (float) cmd.height, 0f);
+    }
+
+    @Test
+    public void setTextSize() {
+        EditCommand cmd = decode(MsgCodec.encodeSetTextSize(17.5f));
+        assertEquals(MsgCodec.OP_SET_TEXTSIZE, cmd.op);
+        assertEquals(17.5f, cmd.fontSize, 0f);
+    }
+
+    @Test
+    public void setFocusAndVisible() {
+        assertEquals(true, decode(MsgCodec.encodeSetFocus(true)).flag);
+        assertEquals(false, decode(MsgCodec.encodeSetFocus(false)).flag);
+        assertEquals(MsgCodec.OP_SET_FOCUS, decode(MsgCodec.encodeSetFocus(true)).op);
+        assertEquals(true, decode(MsgCodec.encodeSetVisible(true)).flag);
+        assertEquals(false, decode(MsgCodec.encodeSetVisible(false)).flag);
+        assertEquals(MsgCodec.OP_SET_VISIBLE, decode(MsgCodec.encodeSetVisible(true)).op);
+    }
+
+    @Test
+    public void androidKeyDown() {
+        EditCommand cmd = decode(MsgCodec.encodeAndroidKeyDown(67));
+        assertEquals(MsgCodec.OP_ANDROID_KEY_DOWN, cmd.op);
+        assertEquals(67, cmd.keyCode);
+    }
+
+    @Test
+    public void replaceText() {
+        EditCommand cmd = decode(MsgCodec.encodeReplaceText(4, 9, "abc"));
+        assertEquals(MsgCodec.OP_REPLACE_TEXT, cmd.op);
+        assertEquals(4, cmd.start);
+        assertEquals(9, cmd.end);
+        assertEquals("abc", cmd.text);
+    }
+
+    @Test
+    public void setTextChunked() {
+        EditCommand cmd = decode(MsgCodec.encodeSetTextChunked("long text", 4096));
+        assertEquals(MsgCodec.OP_SET_TEXT_CHUNKED, cmd.op);
+        assertEquals("long text", cmd.text);
+        assertEquals(4096, cmd.end);
+    }
+
+    @Test
+    public void bulk() {
+        byte[][] msgs = {MsgCodec.encodeSetText("one"), MsgCodec.encodeRemove(), MsgCodec.encodeSetFocus(true)};
+        EditCommand[] cmds = EditCommand.fromBinaryBulk(MsgCodec.encodeBulk(new int[]{5, 6, 7}, msgs));
+        assertEquals(3, cmds.length);
+        assertEquals(5, cmds[0].senderId);
+        assertEquals("one", cmds[0].text);
+        assertEquals(6, cmds[1].senderId);
+        assertEquals(MsgCodec.OP_REMOVE, cmds[1].op);
+        assertEquals(7, cmds[2].senderId);
+        assertEquals(true, cmds[2].flag);
+    }
+
+    @Test
+    public void writerMatchesReader() {
+        byte[] bytes = new MsgCodec.Writer(1).writeByte(-2).writeBool(true).writeInt(-123456789)
+                .writeLong(0x123456789abcdefL).writeFloat(-0.5f).writeString("x").toByteArray();
+        MsgCodec.Reader reader = new MsgCodec.Reader().reset(bytes);
+        assertEquals(-2, reader.readByte());
+        assertEquals(true, reader.readBool());
+        assertEquals(-123456789, reader.readInt());
+        assertEquals(0x123456789abcdefL, reader.readLong());
+        assertEquals(-0.5f, reader.readFloat(), 0f);
+        assertEquals("x", reader.readString());
+        assertEquals(0, reader.remaining());
+        // Little-endian, like C#'s BinaryWriter.
+        assertArrayEquals(new byte[]{1, 0, 0, 0}, new MsgCodec.Writer().writeInt(1).toByteArray());
+    }
+
+    @Test
+    public void truncatedMessagesAreRejected() {
+        byte[][] msgs = {
+                MsgCodec.encodeRemove(),
+                MsgCodec.encodeSetText("text"),
+                MsgCodec.encodeSetRect(1, 2, 3, 4),
+                MsgCodec.encodeSetTextSize(1),
+                MsgCodec.encodeSetFocus(true),
+                MsgCodec.encodeSetVisible(true),
+                MsgCodec.encodeAndroidKeyDown(1),
+                MsgCodec.encodeCreateStyled(1, 1, 2, 3, 4, MsgCodec.OVERRIDE_PLACEHOLDER, params()),
+                MsgCodec.encodeReplaceText(1, 2, "t"),
+                MsgCodec.encodeSetTextChunked("t", 1),
+        };
+        for (byte[] msg : msgs) {
+            for (int length = 0; length < msg.length; length++)
+                assertEquals("prefix " + length + " of op " + msg[0], 0, decode(Arrays.copyOf(msg, length)).op);
+        }
+
+        // OP_CREATE may end after any optional field, but not within the required ones.
+        byte[] create = MsgCodec.encodeCreate(params());
+        int required = create.length - 10;
+        for (int length = 0; length < required; length++)
+            assertEquals("prefix " + length + " of OP_CREATE", 0, decode(Arrays.copyOf(create, length)).op);
+    }
+
+    @Test
+    public void negativeLengthsAreRejected() {
+        byte[] text = new MsgCodec.Writer().writeByte(MsgCodec.OP_SET_TEXT).writeInt(-1).toByteArray();
+        assertEquals(0, decode(text).op);
+
+        byte[] bulk = new MsgCodec.Writer().writeInt(1).writeInt(1).writeInt(-5).toByteArray();
+        assertNull(EditCommand.fromBinaryBulk(bulk));
+
+        byte[] hugeCount = new MsgCodec.Writer().writeInt(Integer.MAX_VALUE).toByteArray();
+        assertNull(EditCommand.fromBinaryBulk(hugeCount));
+    }
+
+    @Test
+    public void unknownOpIsRejected() {
+        assertEquals(0, decode(new byte[]{(byte) 99}).op);
+        assertEquals(0, decode(new byte[0]).op);
+    }
+}
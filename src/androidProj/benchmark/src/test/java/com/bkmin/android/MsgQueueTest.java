@@ -0,0 +1,82 @@
+package com.bkmin.android;
+
+import android.app.Activity;
+import android.view.Choreographer;
+
+import com.unity3d.player.UnityPlayer;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class MsgQueueTest {
+    @Before
+    public void setUp() {
+        UnityPlayer.currentActivity = new Activity();
+        NativeEditPlugin.InitPluginMsgHandler("Handler", NativeEditPlugin.PROTOCOL_BINARY, 0);
+        BridgeMetrics.reset();
+        BridgeMetrics.setEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        NativeEditPlugin.SetMsgBatchMode(NativeEditPlugin.BATCH_OFF);
+        NativeEditPlugin.ClosePluginMsgHandler();
+        Choreographer.getInstance().doFrame();
+        BridgeMetrics.setEnabled(false);
+        BridgeMetrics.reset();
+        UnityPlayer.currentActivity = null;
+        EditTextPool.clear();
+    }
+
+    // Messages still queued at Close are dropped, they must not stay in the queue depth gauge.
+    @Test
+    public void closeTakesDroppedMsgsOffTheQueueDepth() throws Exception {
+        NativeEditPlugin.SetMsgBatchMode(NativeEditPlugin.BATCH_MANUAL);
+        NativeEditPlugin.SendUnityBinaryMsgToPlugin(1, MsgCodec.encodeCreate(params()));
+        NativeEditPlugin.SendUnityBinaryMsgToPlugin(1, MsgCodec.encodeSetText("queued"));
+        assertEquals(2, queueDepth());
+
+        NativeEditPlugin.ClosePluginMsgHandler();
+        assertEquals(0, queueDepth());
+    }
+
+    @Test
+    public void autoBatchDrainsOnTheNextFrame() throws Exception {
+        NativeEditPlugin.SetMsgBatchMode(NativeEditPlugin.BATCH_AUTO);
+        int drains = drains();
+        NativeEditPlugin.SendUnityBinaryMsgToPlugin(1, MsgCodec.encodeCreate(params()));
+        NativeEditPlugin.SendUnityBinaryMsgToPlugin(1, MsgCodec.encodeSetText("a"));
+        NativeEditPlugin.SendUnityBinaryMsgToPlugin(1, MsgCodec.encodeSetText("ab"));
+        assertEquals(3, queueDepth());
+
+        Choreographer.getInstance().doFrame();
+        assertEquals(0, queueDepth());
+        assertEquals("ab", NativeEditPlugin.GetEditBoxText(1));
+        assertEquals(drains + 1, drains());
+    }
+
+    private static int drains() throws Exception {
+        return new JSONObject(NativeEditPlugin.GetMsgQueueStats()).getInt("drains");
+    }
+
+    private static int queueDepth() throws Exception {
+        return new JSONObject(BridgeMetrics.dump()).getInt("queueDepth");
+    }
+
+    private static EditBox.CreateParams params() {
+        EditBox.CreateParams p = new EditBox.CreateParams();
+        p.width = 0.5;
+        p.height = 0.1;
+        p.fontSize = 20;
+        p.contentType = "Standard";
+        p.keyboardType = "Default";
+        p.inputType = "Standard";
+        p.returnKeyType = "Done";
+        p.alignment = "MiddleLeft";
+        return p;
+    }
+}
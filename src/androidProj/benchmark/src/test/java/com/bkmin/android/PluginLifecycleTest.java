@@ -0,0 +1,155 @@
+package com.bkmin.android;
+
+import android.app.Activity;
+import android.view.Choreographer;
+import android.view.View;
+import android.view.WindowInsets;
+
+import com.unity3d.player.UnityPlayer;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+// Init/Close cycles must not keep the activities they ran on alive.
+public class PluginLifecycleTest {
+    private static final int BOXES = 6;
+
+    @After
+    public void tearDown() {
+        UnityPlayer.currentActivity = null;
+        EditTextPool.clear();
+    }
+
+    @Test
+    public void closedActivitiesAreCollectable() throws Exception {
+        WeakReference<Activity> first = runSession(false);
+        for (int i = 0; i < 4; i++)
+            runSession(i % 2 == 1);
+        WeakReference<Activity> last = runSession(true);
+        UnityPlayer.currentActivity = null;
+
+        assertCollected(first);
+        assertCollected(last);
+        assertNull(NativeEditPlugin.getHost());
+        assertNull(NativeEditPlugin.getApplicationContext());
+    }
+
+
+    @Test
+    public void initWithoutCloseReleasesThePreviousActivity() throws Exception {
+        UnityPlayer.currentActivity = new Activity();
+        WeakReference<Activity> previous = new WeakReference<>(UnityPlayer.currentActivity);
+        NativeEditPlugin.InitPluginMsgHandler("Handler", NativeEditPlugin.PROTOCOL_BINARY, 2);
+        createBoxes();
+
+        // The activity was recreated and Unity initializes again without closing.
+        UnityPlayer.currentActivity = new Activity();
+        NativeEditPlugin.InitPluginMsgHandler("Handler", NativeEditPlugin.PROTOCOL_BINARY, 2);
+        createBoxes();
+        NativeEditPlugin.ClosePluginMsgHandler();
+        UnityPlayer.currentActivity = null;
+
+        assertCollected(previous);
+    }
+
+    @Test
+    public void messagesAfterCloseAreDropped() {
+        UnityPlayer.currentActivity = new Activity();
+        NativeEditPlugin.InitPluginMsgHandler("Handler", NativeEditPlugin.PROTOCOL_BINARY, 0);
+        NativeEditPlugin.ClosePluginMsgHandler();
+
+        NativeEditPlugin.SendUnityBinaryMsgToPlugin(1, MsgCodec.encodeCreate(params()));
+        NativeEditPlugin.SetKeyboardAvoidance(EditBox.AVOID_REPORT, 0);
+        NativeEditPlugin.SetSuggestions(1, 1, 8, 0);
+        NativeEditPlugin.FlushPluginMsgs();
+        NativeEditPlugin.ClosePluginMsgHandler();
+        assertTrue(new JSONObject(NativeEditPlugin.GetEditBoxState(1)).getBoolean("bError"));
+    }
+
+    // The plugin reads the keyboard from its own layout's insets and leaves the content view's listener in place.
+    @Test
+    public void contentInsetsListenerIsKept() {
+        Activity activity = new Activity();
+        UnityPlayer.currentActivity = activity;
+        View content = activity.findViewById(android.R.id.content);
+        final int[] appInsets = new int[1];
+        content.setOnApplyWindowInsetsListener(new View.OnApplyWindowInsetsListener() {
+            @Override
+            public WindowInsets onApplyWindowInsets(View v, WindowInsets insets) {
+                appInsets[0]++;
+                return insets;
+            }
+        });
+
+        NativeEditPlugin.InitPluginMsgHandler("Handler", NativeEditPlugin.PROTOCOL_BINARY, 0);
+        content.dispatchApplyWindowInsets(new WindowInsets(900));
+        assertEquals(1, appInsets[0]);
+        assertEquals(900, NativeEditPlugin.getHost().keyboardMetrics.getExpectedHeight());
+
+        NativeEditPlugin.ClosePluginMsgHandler();
+        content.dispatchApplyWindowInsets(new WindowInsets(0));
+        assertEquals(2, appInsets[0]);
+    }
+
+    // Creates boxes, edits and focuses them, then closes the plugin. Returns a reference to the session's activity.
+    private static WeakReference<Activity> runSession(boolean lazyViews) throws Exception {
+        UnityPlayer.currentActivity = new Activity();
+        WeakReference<Activity> ref = new WeakReference<>(UnityPlayer.currentActivity);
+        NativeEditPlugin.InitPluginMsgHandler("Handler", NativeEditPlugin.PROTOCOL_BINARY, 2);
+        NativeEditPlugin.SetLazyViews(lazyViews, 0);
+        NativeEditPlugin.SetKeyboardAvoidance(EditBox.AVOID_TRANSLATE, 100);
+        createBoxes();
+        NativeEditPlugin.SendUnityBinaryMsgToPlugin(1, MsgCodec.encodeSetVisible(false));
+        NativeEditPlugin.SendUnityBinaryMsgToPlugin(2, MsgCodec.encodeSetFocus(true));
+        NativeEditPlugin.SendUnityBinaryMsgToPlugin(2, MsgCodec.encodeSetText("typed"));
+        runPending();
+        assertEquals("typed", new JSONObject(NativeEditPlugin.GetEditBoxState(2)).getString("text"));
+
+        NativeEditPlugin.ClosePluginMsgHandler();
+        runPending();
+        return ref;
+    }
+
+    private static void createBoxes() {
+        for (int id = 1; id <= BOXES; id++)
+            NativeEditPlugin.SendUnityBinaryMsgToPlugin(id, MsgCodec.encodeCreate(params()));
+        runPending();
+    }
+
+    private static void runPending() {
+        PluginHost host = NativeEditPlugin.getHost();
+        if (host != null) {
+            host.mainLayout.runPending();
+            host.rootView.runPending();
+        }
+        Choreographer.getInstance().doFrame();
+    }
+
+    private static EditBox.CreateParams params() {
+        EditBox.CreateParams p = new EditBox.CreateParams();
+        p.width = 0.5;
+        p.height = 0.1;
+        p.fontSize = 20;
+        p.contentType = "Standard";
+        p.keyboardType = "Default";
+        p.inputType = "Standard";
+        p.returnKeyType = "Done";
+        p.alignment = "MiddleLeft";
+        return p;
+    }
+
+    private static void assertCollected(WeakReference<?> ref) throws InterruptedException {
+        for (int i = 0; i < 50 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull("activity is still reachable after close", ref.get());
+    }
+}
@@ -0,0 +1,58 @@
+package com.bkmin.android;
+
+import android.app.Activity;
+
+import com.unity3d.player.UnityPlayer;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RectUpdateStatsTest {
+    @Before
+    public void setUp() {
+        UnityPlayer.currentActivity = new Activity();
+        NativeEditPlugin.InitPluginMsgHandler("Handler", NativeEditPlugin.PROTOCOL_BINARY, 0);
+    }
+
+    @After
+    public void tearDown() {
+        NativeEditPlugin.ClosePluginMsgHandler();
+        UnityPlayer.currentActivity = null;
+        EditTextPool.clear();
+    }
+
+    // Each box counts its own updates, an unchanged pixel rect is skipped.
+    @Test
+    public void countedPerBox() throws Exception {
+        NativeEditPlugin.SendUnityBinaryMsgToPlugin(1, MsgCodec.encodeCreate(params()));
+        NativeEditPlugin.SendUnityBinaryMsgToPlugin(2, MsgCodec.encodeCreate(params()));
+        NativeEditPlugin.SendUnityBinaryMsgToPlugin(1, MsgCodec.encodeSetRect(0, 0, 0.5f, 0.1f));
+        NativeEditPlugin.SendUnityBinaryMsgToPlugin(1, MsgCodec.encodeSetRect(0, 0.5f, 0.5f, 0.1f));
+
+        JSONObject first = new JSONObject(NativeEditPlugin.GetRectUpdateStats(1));
+        assertEquals(2, first.getLong("applied"));
+        assertEquals(1, first.getLong("skipped"));
+        JSONObject second = new JSONObject(NativeEditPlugin.GetRectUpdateStats(2));
+        assertEquals(1, second.getLong("applied"));
+        assertEquals(0, second.getLong("skipped"));
+        assertTrue(new JSONObject(NativeEditPlugin.GetRectUpdateStats(3)).getBoolean("bError"));
+    }
+
+    private static EditBox.CreateParams params() {
+        EditBox.CreateParams p = new EditBox.CreateParams();
+        p.width = 0.5;
+        p.height = 0.1;
+        p.fontSize = 20;
+        p.contentType = "Standard";
+        p.keyboardType = "Default";
+        p.inputType = "Standard";
+        p.returnKeyType = "Done";
+        p.alignment = "MiddleLeft";
+        return p;
+    }
+}
@@ -0,0 +1,90 @@
+package com.bkmin.android;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SharedTextBufferTest {
+    @Test
+    public void writeAndRead() {
+        SharedTextBuffer shared = new SharedTextBuffer();
+        assertFalse(shared.write("hello é 😀"));
+        assertEquals("hello é 😀", readText(shared));
+        assertEquals(2, shared.getVersion());
+    }
+
+    @Test
+    public void growingReallocates() {
+        SharedTextBuffer shared = new SharedTextBuffer();
+        char[] chars = new char[capacityChars(shared) + 1];
+        Arrays.fill(chars, 'x');
+        assertTrue(shared.write(new String(chars)));
+        assertEquals(new String(chars), readText(shared));
+        assertFalse(shared.write("short"));
+    }
+
+    // A reader racing the writer only ever sees a whole text.
+    @Test
+    public void readerNeverSeesTornText() throws InterruptedException {
+        final SharedTextBuffer shared = new SharedTextBuffer();
+        final String[] texts = new String[8];
+        for (int i = 0; i < texts.length; i++) {
+            char[] chars = new char[50 + i * 37];
+            Arrays.fill(chars, (char) ('a' + i));
+            texts[i] = new String(chars);
+        }
+        shared.write(texts[0]);
+
+        final AtomicBoolean done = new AtomicBoolean();
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 200000; i++)
+                    shared.write(texts[i % texts.length]);
+                done.set(true);
+            }
+        });
+        writer.start();
+        while (!done.get()) {
+            String text = readText(shared);
+            int index = text.charAt(0) - 'a';
+            assertEquals(texts[index], text);
+        }
+        writer.join();
+    }
+
+    // Reads like the C# side does: the seqlock protocol described at SharedTextBuffer.
+    private static String readText(SharedTextBuffer shared) {
+        while (true) {
+            ByteBuffer buf = shared.getBuffer();
+            int before = buf.getInt(SharedTextBuffer.VERSION_OFFSET);
+            if ((before & 1) != 0) {
+                Thread.yield();
+                continue;
+            }
+            SharedTextBuffer.fence();
+            int length = buf.getInt(SharedTextBuffer.LENGTH_OFFSET);
+            if (length < 0 || SharedTextBuffer.HEADER_SIZE + length * 2 > buf.capacity()) {
+                // Torn read of a write in progress.
+                Thread.yield();
+                continue;
+            }
+            char[] chars = new char[length];
+            for (int i = 0; i < length; i++)
+                chars[i] = buf.getChar(SharedTextBuffer.HEADER_SIZE + i * 2);
+            SharedTextBuffer.fence();
+            if (buf.getInt(SharedTextBuffer.VERSION_OFFSET) == before && buf == shared.getBuffer())
+                return new String(chars);
+        }
+    }
+
+    private static int capacityChars(SharedTextBuffer shared) {
+        return (shared.getBuffer().capacity() - SharedTextBuffer.HEADER_SIZE) / 2;
+    }
+}
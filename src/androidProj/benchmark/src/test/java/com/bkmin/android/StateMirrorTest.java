@@ -0,0 +1,98 @@
+package com.bkmin.android;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class StateMirrorTest {
+    @Test
+    public void followsRandomEdits() {
+        StateMirror mirror = new StateMirror();
+        StringBuilder expected = new StringBuilder();
+        Random random = new Random(7);
+        for (int i = 0; i < 2000; i++) {
+            int start = random.nextInt(expected.length() + 1);
+            int end = start + random.nextInt(expected.length() - start + 1);
+            String inserted = "abcdefghijklmnopqrstuvwxyz".substring(0, random.nextInt(i % 50 == 0 ? 26 : 4));
+            // The source is the whole edited text, as a TextWatcher passes it.
+            String source = "<" + inserted + ">";
+            mirror.replace(start, end, source, 1, 1 + inserted.length());
+            expected.replace(start, end, inserted);
+            assertEquals(expected.length(), mirror.length());
+            if (i % 10 == 0)
+                assertEquals(expected.toString(), mirror.text());
+        }
+        mirror.set("reset");
+        assertEquals("reset", mirror.text());
+    }
+
+    @Test
+    public void stateIsBuiltOncePerChange() {
+        StateMirror mirror = new StateMirror();
+        mirror.set("hello");
+        mirror.setSelection(5, 5, true);
+        EditBox.State state = mirror.state();
+        assertEquals("hello", state.text);
+        assertEquals(5, state.selectionEnd);
+        assertSame(state, mirror.state());
+
+        mirror.setSelection(5, 5, true);
+        assertSame(state, mirror.state());
+        mirror.setSelection(2, 4, true);
+        EditBox.State moved = mirror.state();
+        assertNotSame(state, moved);
+        // Moving the cursor keeps the text that was already built.
+        assertSame(state.text, moved.text);
+
+        mirror.replace(5, 5, "!", 0, 1);
+        assertEquals("hello!", mirror.state().text);
+    }
+
+    // A reader racing the UI thread only ever sees a whole text, with the selection set along with it.
+    @Test
+    public void readerNeverSeesTornText() throws InterruptedException {
+        final StateMirror mirror = new StateMirror();
+        final String[] texts = new String[8];
+        for (int i = 0; i < texts.length; i++) {
+            char[] chars = new char[20 + i * 53];
+            Arrays.fill(chars, (char) ('a' + i));
+            texts[i] = new String(chars);
+        }
+        mirror.set(texts[0]);
+        mirror.setSelection(texts[0].length(), texts[0].length(), true);
+
+        final AtomicBoolean done = new AtomicBoolean();
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 100000; i++) {
+                    String text = texts[i % texts.length];
+                    mirror.set(text);
+                    mirror.setSelection(text.length(), text.length(), true);
+                }
+                done.set(true);
+            }
+        });
+        writer.start();
+        while (!done.get()) {
+            EditBox.State state = mirror.state();
+            int index = state.text.charAt(0) - 'a';
+            assertEquals(texts[index], state.text);
+            if (state.selectionEnd != state.text.length()) {
+                // Read between set and setSelection, so the selection is still the previous text's end.
+                boolean previousEnd = false;
+                for (String text : texts)
+                    previousEnd |= state.selectionEnd == text.length();
+                assertTrue(previousEnd);
+            }
+        }
+        writer.join();
+    }
+}
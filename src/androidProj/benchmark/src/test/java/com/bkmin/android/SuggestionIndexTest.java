@@ -0,0 +1,78 @@
+package com.bkmin.android;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SuggestionIndexTest {
+    private static final byte[] NAMES = "Bob\nbob\nBobby\nAlice\nalfred\n".getBytes(Charset.forName("UTF-8"));
+
+    @After
+    public void tearDown() {
+        SuggestionIndex.clear();
+    }
+
+    @Test
+    public void lookupByPrefix() {
+        SuggestionIndex index = SuggestionIndex.build(new ArrayList<>(Arrays.asList("Bob", "bob", "Bobby", "Alice", "alfred")));
+        assertEquals(Arrays.asList("Bob", "bob", "Bobby"), index.lookup("bo", 8));
+        assertEquals(Arrays.asList("alfred"), index.lookup("ALF", 8));
+        assertEquals(Arrays.asList("Bob"), index.lookup("b", 1));
+    }
+
+    @Test
+    public void noResultsWantedGivesNone() {
+        SuggestionIndex index = SuggestionIndex.build(new ArrayList<>(Arrays.asList("Bob")));
+        assertTrue(index.lookup("b", 0).isEmpty());
+        assertTrue(index.lookup("b", -1).isEmpty());
+    }
+
+    @Test
+    public void loadFinishes() throws InterruptedException {
+        SuggestionIndex.load(3, NAMES);
+        awaitWorker();
+        assertNotNull(SuggestionIndex.get(3));
+        assertEquals(5, SuggestionIndex.get(3).size());
+    }
+
+    // ClosePluginMsgHandler clears the indexes while a load may still wait on the worker.
+    @Test
+    public void clearDropsPendingLoads() throws InterruptedException {
+        final CountDownLatch release = new CountDownLatch(1);
+        SuggestionIndex.post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                }
+            }
+        });
+        SuggestionIndex.load(4, NAMES);
+        SuggestionIndex.clear();
+        release.countDown();
+        awaitWorker();
+        assertNull(SuggestionIndex.get(4));
+    }
+
+    private static void awaitWorker() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1);
+        SuggestionIndex.post(new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,34 @@
+package com.bkmin.android;
+
+import android.content.Context;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class TypefaceCacheTest {
+    @After
+    public void tearDown() {
+        TypefaceCache.clear();
+    }
+
+    // A font that fails to load is only tried once, later lookups get the cached failure.
+    @Test
+    public void failedLoadsAreCached() throws Exception {
+        Context context = new Context();
+        TypefaceCache.clear();
+        JSONObject before = new JSONObject(TypefaceCache.getStats());
+        assertNull(TypefaceCache.get(context, "/no/such/font.ttf"));
+        assertNull(TypefaceCache.get(context, "/no/such/font.ttf"));
+        assertNotNull(TypefaceCache.get(context, "sans-serif"));
+
+        JSONObject after = new JSONObject(TypefaceCache.getStats());
+        assertEquals(2, after.getLong("misses") - before.getLong("misses"));
+        assertEquals(1, after.getLong("hits") - before.getLong("hits"));
+        assertEquals(2, after.getInt("cached"));
+    }
+}
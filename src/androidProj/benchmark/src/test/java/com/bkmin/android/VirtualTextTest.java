@@ -0,0 +1,101 @@
+package com.bkmin.android;
+
+import android.app.Activity;
+import android.view.Choreographer;
+
+import com.unity3d.player.UnityPlayer;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+// A box without a view is edited like its view would be, filters included.
+public class VirtualTextTest {
+    @Before
+    public void setUp() {
+        UnityPlayer.currentActivity = new Activity();
+        NativeEditPlugin.InitPluginMsgHandler("Handler", NativeEditPlugin.PROTOCOL_BINARY, 0);
+        NativeEditPlugin.SetLazyViews(true, 0);
+    }
+
+    @After
+    public void tearDown() {
+        NativeEditPlugin.ClosePluginMsgHandler();
+        runPending();
+        UnityPlayer.currentActivity = null;
+        EditTextPool.clear();
+    }
+
+    @Test
+    public void filtersApplyWithoutView() throws Exception {
+        EditBox.CreateParams p = params();
+        p.characterLimit = 5;
+        NativeEditPlugin.SendUnityBinaryMsgToPlugin(1, MsgCodec.encodeCreate(p));
+        NativeEditPlugin.SendUnityBinaryMsgToPlugin(1, MsgCodec.encodeSetVisible(false));
+        NativeEditPlugin.SendUnityBinaryMsgToPlugin(1, MsgCodec.encodeSetText("abcdefgh"));
+        runPending();
+        assertEquals("abcde", text(1));
+
+        NativeEditPlugin.SendUnityBinaryMsgToPlugin(1, MsgCodec.encodeReplaceText(0, 0, "xyz"));
+        NativeEditPlugin.SendUnityBinaryMsgToPlugin(1, MsgCodec.encodeReplaceText(1, 3, "QRS"));
+        runPending();
+        assertEquals("aQRde", text(1));
+        assertEquals(5, state(1).getInt("selectionStart"));
+
+        // The view gets the text and keeps the limit.
+        NativeEditPlugin.SendUnityBinaryMsgToPlugin(1, MsgCodec.encodeSetVisible(true));
+        NativeEditPlugin.SendUnityBinaryMsgToPlugin(1, MsgCodec.encodeReplaceText(5, 5, "!"));
+        runPending();
+        assertEquals("aQRde", text(1));
+        NativeEditPlugin.SendUnityBinaryMsgToPlugin(1, MsgCodec.encodeReplaceText(0, 2, ""));
+        runPending();
+        assertEquals("Rde", text(1));
+    }
+
+    // Removing a focused box that was hidden must not bring its view back, even once lazy views are turned off.
+    @Test
+    public void removedBoxGetsNoView() {
+        NativeEditPlugin.SendUnityBinaryMsgToPlugin(1, MsgCodec.encodeCreate(params()));
+        NativeEditPlugin.SendUnityBinaryMsgToPlugin(1, MsgCodec.encodeSetFocus(true));
+        runPending();
+        NativeEditPlugin.SendUnityBinaryMsgToPlugin(1, MsgCodec.encodeSetVisible(false));
+        NativeEditPlugin.SendUnityBinaryMsgToPlugin(1, MsgCodec.encodeRemove());
+        NativeEditPlugin.SetLazyViews(false, 0);
+        runPending();
+        runPending();
+        assertEquals(0, NativeEditPlugin.getHost().mainLayout.getChildCount());
+    }
+
+    private static String text(int id) throws Exception {
+        return state(id).getString("text");
+    }
+
+    private static JSONObject state(int id) throws Exception {
+        return new JSONObject(NativeEditPlugin.GetEditBoxState(id));
+    }
+
+    private static void runPending() {
+        PluginHost host = NativeEditPlugin.getHost();
+        if (host != null) {
+            host.mainLayout.runPending();
+            host.rootView.runPending();
+        }
+        Choreographer.getInstance().doFrame();
+    }
+
+    private static EditBox.CreateParams params() {
+        EditBox.CreateParams p = new EditBox.CreateParams();
+        p.width = 0.5;
+        p.height = 0.1;
+        p.fontSize = 20;
+        p.contentType = "Standard";
+        p.keyboardType = "Default";
+        p.inputType = "Standard";
+        p.returnKeyType = "Done";
+        p.alignment = "MiddleLeft";
+        return p;
+    }
+}
@@ -0,0 +1,181 @@
+package com.bkmin.android;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Low-overhead counters and latency histograms for the Unity <-> plugin message bridge.
+// While disabled every hook is a single volatile read. Histograms use power-of-two microsecond buckets:
+// bucket i counts samples in [2^(i-1), 2^i) us, bucket 0 counts samples under 1 us, the last bucket is open ended.
+final class BridgeMetrics {
+    private static final int BUCKETS = 20;
+    static final String OUT_BATCH = "Batch";
+    // The events of EditBox.MSG_NAMES, then batches and anything else.
+    private static final String[] OUT_NAMES = outNames();
+
+    private static volatile boolean enabled = false;
+
+    // Indexed by MsgCodec opcode, 0 collects messages that could not be decoded.
+    private static final long[] inCount = new long[MsgCodec.OP_NAMES.length];
+    private static final long[][] inQueueHist = new long[MsgCodec.OP_NAMES.length][BUCKETS];
+    private static final long[][] inProcessHist = new long[MsgCodec.OP_NAMES.length][BUCKETS];
+    private static final long[] outCount = new long[OUT_NAMES.length];
+    private static final long[][] outSendHist = new long[OUT_NAMES.length][BUCKETS];
+
+    private static final AtomicInteger queueDepth = new AtomicInteger();
+    private static volatile int maxQueueDepth = 0;
+
+    private BridgeMetrics() {
+    }
+
+    private static String[] outNames() {
+        String[] names = Arrays.copyOf(EditBox.MSG_NAMES, EditBox.MSG_NAMES.length + 2);
+        names[names.length - 2] = OUT_BATCH;
+        names[names.length - 1] = "Other";
+        return names;
+    }
+
+    static boolean isEnabled() {
+        return enabled;
+    }
+
+    static void setEnabled(boolean enable) {
+        enabled = enable;
+    }
+
+    static synchronized void reset() {
+        for (int i = 0; i < inCount.length; i++) {
+            inCount[i] = 0;
+            clear(inQueueHist[i]);
+            clear(inProcessHist[i]);
+        }
+        for (int i = 0; i < outCount.length; i++) {
+            outCount[i] = 0;
+            clear(outSendHist[i]);
+        }
+        // queueDepth is a live gauge of messages in flight and is not reset.
+        maxQueueDepth = queueDepth.get();
+    }
+
+    // Called on the Unity thread when a message is handed to the UI thread. Returns the post timestamp, 0 if disabled.
+    static long onPosted() {
+        if (!enabled)
+            return 0;
+        int depth = queueDepth.incrementAndGet();
+        if (depth > maxQueueDepth)
+            maxQueueDepth = depth;
+        return System.nanoTime();
+    }
+
+    // Called on the UI thread right before a message posted at postTime is processed. Returns the start timestamp.
+    static long onDequeued(long postTime) {
+        if (postTime == 0)
+            return 0;
+        queueDepth.decrementAndGet();
+        return System.nanoTime();
+    }
+
+    static void recordInbound(int op, long postTime, long startTime) {
+        if (startTime == 0 || !enabled)
+            return;
+        long end = System.nanoTime();
+        if (op < 0 || op >= inCount.length)
+            op = 0;
+        synchronized (BridgeMetrics.class) {
+            inCount[op]++;
+            inQueueHist[op][bucket(startTime - postTime)]++;
+            inProcessHist[op][bucket(end - startTime)]++;
+        }
+    }
+
+    static long startOutbound() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    static void recordOutbound(String msg, long startTime) {
+        if (startTime == 0 || !enabled)
+            return;
+        long end = System.nanoTime();
+        int index = outIndex(msg);
+        synchronized (BridgeMetrics.class) {
+            outCount[index]++;
+            outSendHist[index][bucket(end - startTime)]++;
+        }
+    }
+
+    // An event added to an outbound batch. It is only counted, its send time is part of the Batch's.
+    static void countBatchedOutbound(String msg) {
+        if (!enabled)
+            return;
+        int index = outIndex(msg);
+        synchronized (BridgeMetrics.class) {
+            outCount[index]++;
+        }
+    }
+
+    private static int outIndex(String msg) {
+        for (int i = 0; i < OUT_NAMES.length - 1; i++) {
+            if (OUT_NAMES[i].equals(msg))
+                return i;
+        }
+        return OUT_NAMES.length - 1;
+    }
+
+    static synchronized String dump() {
+        StringBuilder sb = new StringBuilder(512);
+        sb.append("{\"enabled\":").append(enabled)
+                .append(",\"queueDepth\":").append(queueDepth.get())
+                .append(",\"maxQueueDepth\":").append(maxQueueDepth)
+                .append(",\"in\":{");
+        boolean first = true;
+        for (int i = 0; i < inCount.length; i++) {
+            if (inCount[i] == 0)
+                continue;
+            if (!first)
+                sb.append(',');
+            first = false;
+            sb.append('"').append(i == 0 ? "Unknown" : MsgCodec.OP_NAMES[i]).append("\":{\"count\":").append(inCount[i]);
+            appendHist(sb.append(",\"queueUs\":"), inQueueHist[i]);
+            appendHist(sb.append(",\"processUs\":"), inProcessHist[i]);
+            sb.append('}');
+        }
+        sb.append("},\"out\":{");
+        first = true;
+        for (int i = 0; i < outCount.length; i++) {
+            if (outCount[i] == 0)
+                continue;
+            if (!first)
+                sb.append(',');
+            first = false;
+            sb.append('"').append(OUT_NAMES[i]).append("\":{\"count\":").append(outCount[i]);
+            appendHist(sb.append(",\"sendUs\":"), outSendHist[i]);
+            sb.append('}');
+        }
+        return sb.append("}}").toString();
+    }
+
+    private static int bucket(long nanos) {
+        long us = nanos / 1000;
+        if (us <= 0)
+            return 0;
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(us));
+    }
+
+    // Writes the histogram as a JSON array with trailing empty buckets dropped.
+    private static void appendHist(StringBuilder sb, long[] hist) {
+        int last = hist.length - 1;
+        while (last > 0 && hist[last] == 0)
+            last--;
+        sb.append('[');
+        for (int i = 0; i <= last; i++) {
+            if (i > 0)
+                sb.append(',');
+            sb.append(hist[i]);
+        }
+        sb.append(']');
+    }
+
+    private static void clear(long[] values) {
+        for (int i = 0; i < values.length; i++)
+            values[i] = 0;
+    }
+}
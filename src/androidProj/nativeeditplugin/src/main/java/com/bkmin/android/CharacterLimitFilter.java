@@ -0,0 +1,52 @@
+package com.bkmin.android;
+
+import android.text.InputFilter;
+import android.text.Spanned;
+
+// Enforces the character limit before an edit is committed, so typing, paste and IME composition are all
+// truncated in one pass. The limit is counted in UTF-16 code units (like Unity's InputField) or in code points.
+// Accepting an edit allocates nothing; only a truncated edit creates a sub-sequence.
+final class CharacterLimitFilter implements InputFilter {
+    static final String UNIT_CODE_UNITS = "CodeUnits";
+    static final String UNIT_CODE_POINTS = "CodePoints";
+
+    private final int limit;
+    private final boolean countCodePoints;
+
+    CharacterLimitFilter(int limit, String unit) {
+        this.limit = limit;
+        this.countCodePoints = UNIT_CODE_POINTS.equals(unit);
+    }
+
+    @Override
+    public CharSequence filter(CharSequence source, int start, int end, Spanned dest, int dstart, int dend) {
+        return fit(source, start, end, kept(dest, dstart, dend));
+    }
+
+    private int kept(CharSequence dest, int dstart, int dend) {
+        if (countCodePoints)
+            return Character.codePointCount(dest, 0, dstart) + Character.codePointCount(dest, dend, dest.length());
+        return dest.length() - (dend - dstart);
+    }
+
+    private CharSequence fit(CharSequence source, int start, int end, int kept) {
+        int room = limit - kept;
+        if (room <= 0)
+            return "";
+
+        int keepEnd;
+        if (countCodePoints) {
+            if (Character.codePointCount(source, start, end) <= room)
+                return null;
+            keepEnd = Character.offsetByCodePoints(source, start, room);
+        } else {
+            if (end - start <= room)
+                return null;
+            keepEnd = start + room;
+            // Don't split a surrogate pair.
+            if (Character.isHighSurrogate(source.charAt(keepEnd - 1)))
+                keepEnd--;
+        }
+        return keepEnd == start ? "" : source.subSequence(start, keepEnd);
+    }
+}
@@ -1,252 +1,471 @@
 package com.bkmin.android;
 
 import android.annotation.SuppressLint;
-import android.app.Activity;
 import android.content.Context;
 import android.graphics.Color;
-import android.graphics.Rect;
 import android.graphics.Typeface;
+import android.os.SystemClock;
 import android.text.Editable;
+import android.text.InputFilter;
 import android.text.InputType;
+import android.text.SpannableStringBuilder;
 import android.text.TextWatcher;
 import android.util.Log;
-import android.util.SparseArray;
 import android.util.TypedValue;
+import android.view.Choreographer;
 import android.view.Gravity;
 import android.view.KeyEvent;
 import android.view.MotionEvent;
 import android.view.View;
-import android.view.ViewTreeObserver;
 import android.view.inputmethod.EditorInfo;
+import android.view.inputmethod.InputConnection;
+import android.view.inputmethod.InputConnectionWrapper;
 import android.view.inputmethod.InputMethodManager;
 import android.widget.EditText;
 import android.widget.RelativeLayout;
 import android.widget.TextView;
 
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.util.ArrayList;
+
 public class EditBox {
     // Simplest way to notify the EditBox about the application lifecycle.
-    class EditTextLifeCycle extends EditText {
+    // Static so that a pooled instance does not keep the box that first created it alive.
+    static class EditTextLifeCycle extends EditText {
         EditBox observerBox;
+        private TextWatcher textWatcher;
+        private static final InputFilter[] NO_FILTERS = new InputFilter[0];
 
-        public EditTextLifeCycle(Context context, EditBox box) {
+        public EditTextLifeCycle(Context context) {
             super(context);
-            this.observerBox = box;
+        }
+
+        void setTextWatcher(TextWatcher watcher) {
+            if (textWatcher != null)
+                removeTextChangedListener(textWatcher);
+            textWatcher = watcher;
+            if (watcher != null)
+                addTextChangedListener(watcher);
+        }
+
+        // Drops everything that ties this view to its last box so it can go back into the pool.
+        void resetForReuse() {
+            observerBox = null;
+            setTextWatcher(null);
+            setOnFocusChangeListener(null);
+            setOnEditorActionListener(null);
+            setText("");
+            setHint(null);
+            setTypeface(Typeface.DEFAULT);
+            setFilters(NO_FILTERS);
+            setVisibility(View.VISIBLE);
+            setEnabled(true);
         }
 
         @Override
         public void onWindowFocusChanged(boolean hasWindowFocus) {
             super.onWindowFocusChanged(hasWindowFocus);
-            if (!hasWindowFocus)
+            // observerBox is null while the view is pooled.
+            if (!hasWindowFocus && observerBox != null)
                 observerBox.notifyFocusChanged(hasWindowFocus);
         }
-    }
-
-    private EditTextLifeCycle edit;
-    private final RelativeLayout layout;
-    private int tag;
-    private int characterLimit;
-
-    private static SparseArray<EditBox> editBoxMap = null;
-    private static InputMethodManager inputMethodManager;
-    private static int keyboardHeight = 0;
-    private static int keyboardHeightThreshold = 0;
-
-    private static final String MSG_CREATE = "CreateEdit";
-    private static final String MSG_REMOVE = "RemoveEdit";
-    private static final String MSG_SET_TEXT = "SetText";
-    private static final String MSG_SET_RECT = "SetRect";
-    private static final String MSG_SET_TEXTSIZE = "SetTextSize";
-    private static final String MSG_SET_FOCUS = "SetFocus";
-    private static final String MSG_SET_VISIBLE = "SetVisible";
-    private static final String MSG_TEXT_CHANGE = "TextChange";
-    private static final String MSG_TEXT_BEGIN_EDIT = "TextBeginEdit";
-    private static final String MSG_TEXT_END_EDIT = "TextEndEdit";
-    private static final String MSG_ANDROID_KEY_DOWN = "AndroidKeyDown";
-    private static final String MSG_RETURN_PRESSED = "ReturnPressed";
 
-    static void processRecvJsonMsg(RelativeLayout mainLayout, int nSenderId, final String strJson) {
-        if (editBoxMap == null) {
-            editBoxMap = new SparseArray<>();
-            // add listener to get keyboard height
-            keyboardHeightThreshold = NativeEditPlugin.rootView.getHeight() / 4;
-            NativeEditPlugin.rootView.getViewTreeObserver().addOnGlobalLayoutListener(new ViewTreeObserver.OnGlobalLayoutListener() {
-                private Rect rect = new Rect();
-                private int windowVisibleBottomWithoutKeyboard = 0;
-
-                @Override
-                public void onGlobalLayout() {
-                    rect.setEmpty();
-                    NativeEditPlugin.rootView.getWindowVisibleDisplayFrame(rect);
-                    int delta = windowVisibleBottomWithoutKeyboard - rect.bottom;
-                    if (delta > keyboardHeightThreshold) {
-                        boolean firstSetKeyboardHeight = keyboardHeight == 0;
-                        keyboardHeight = delta;
-                        if (firstSetKeyboardHeight)
-                            // keyboardHeight has not been set when trying to input for the 1st time. Call showKeyboard(true) manually.
-                            for (int i = 0; i < editBoxMap.size(); i++) {
-                                EditBox box = editBoxMap.valueAt(i);
-                                if (box.isFocused()) {
-                                    box.showKeyboard(true);
-                                    break;
-                                }
-                            }
-                    } else {
-                        windowVisibleBottomWithoutKeyboard = rect.bottom;
-                    }
-                }
-            });
+        @Override
+        protected void onSelectionChanged(int selStart, int selEnd) {
+            super.onSelectionChanged(selStart, selEnd);
+            // Called from the EditText constructor before observerBox is assigned.
+            if (observerBox != null)
+                observerBox.onSelectionChanged();
         }
 
-        try {
-            JSONObject jsonMsg = new JSONObject(strJson);
-            String msg = jsonMsg.getString("msg");
-
-            if (msg.equals(MSG_CREATE)) {
-                EditBox nb = new EditBox(mainLayout);
-                nb.Create(nSenderId, jsonMsg);
-                editBoxMap.append(nSenderId, nb);
-            } else {
-                EditBox eb = editBoxMap.get(nSenderId);
-                if (eb != null) {
-                    eb.processJsonMsg(jsonMsg);
-                } else {
-                    Log.e(NativeEditPlugin.LOG_TAG, "EditBox not found, id : " + nSenderId);
-                }
-            }
-        } catch (JSONException e) {
+        @Override
+        public InputConnection onCreateInputConnection(EditorInfo outAttrs) {
+            InputConnection target = super.onCreateInputConnection(outAttrs);
+            return target != null ? new KeyInterceptor(target, this) : null;
         }
     }
 
-    @SuppressLint("ClickableViewAccessibility")
-    private EditBox(RelativeLayout mainLayout) {
-        layout = mainLayout;
-        edit = null;
-
-        //Tap on the layout to clear focus of EditText
-        layout.setOnTouchListener(new View.OnTouchListener() {
-            @Override
-            public boolean onTouch(View view, MotionEvent motionEvent) {
-                layout.setFocusable(true);
-                layout.setFocusableInTouchMode(true);
-                layout.requestFocus();
-                return false;
-            }
-        });
-    }
+    // Key events sent by the IME normally go through the window, where Unity's activity eats backspace, enter and
+    // the digits (number row of Google Keyboard on password fields) before the EditText sees them.
+    // Those are handed to the view directly, the rest takes the usual path.
+    private static final class KeyInterceptor extends InputConnectionWrapper {
+        private final View view;
 
-    private void showKeyboard(boolean isShow) {
-        if (inputMethodManager == null)
-            inputMethodManager = (InputMethodManager) NativeEditPlugin.unityActivity.getSystemService(Activity.INPUT_METHOD_SERVICE);
+        KeyInterceptor(InputConnection target, View view) {
+            super(target, false);
+            this.view = view;
+        }
 
-        int scrollY = 0;
-        if (isShow) {
-            inputMethodManager.showSoftInput(edit, InputMethodManager.SHOW_FORCED);
-            RelativeLayout.LayoutParams lp = (RelativeLayout.LayoutParams) edit.getLayoutParams();
-            int bottomMargin = layout.getHeight() - lp.topMargin - lp.height;
-            if (bottomMargin < keyboardHeight)
-                // Keyboard will cover the EditText. Scroll up rootView to show whole area of EditText just above keyboard.
-                scrollY = keyboardHeight - bottomMargin;
-        } else {
-            NativeEditPlugin.unityActivity.getWindow().getDecorView().clearFocus();
-            inputMethodManager.hideSoftInputFromWindow(edit.getWindowToken(), 0);
+        @Override
+        public boolean sendKeyEvent(KeyEvent event) {
+            if (isInterceptedKey(event.getKeyCode()))
+                return view.dispatchKeyEvent(event);
+            return super.sendKeyEvent(event);
         }
-        NativeEditPlugin.rootView.setScrollY(scrollY);
     }
 
-    private void notifyFocusChanged(boolean hasWindowFocus) {
-        if (!hasWindowFocus)
-            showKeyboard(false);
+    static boolean isInterceptedKey(int keyCode) {
+        return keyCode == KeyEvent.KEYCODE_DEL || keyCode == KeyEvent.KEYCODE_ENTER
+                || (keyCode >= KeyEvent.KEYCODE_0 && keyCode <= KeyEvent.KEYCODE_9);
     }
 
-    private void processJsonMsg(JSONObject jsonMsg) {
-        try {
-            String msg = jsonMsg.getString("msg");
-
-            switch (msg) {
-                case MSG_REMOVE:
-                    this.Remove();
-                    break;
-                case MSG_SET_TEXT:
-                    String text = jsonMsg.getString("text");
-                    this.SetText(text);
-                    break;
-                case MSG_SET_RECT:
-                    this.SetRect(jsonMsg);
-                    break;
-                case MSG_SET_TEXTSIZE:
-                    this.SetTextSize(jsonMsg);
-                    break;
-                case MSG_SET_FOCUS:
-                    boolean isFocus = jsonMsg.getBoolean("isFocus");
-                    this.SetFocus(isFocus);
-                    break;
-                case MSG_SET_VISIBLE:
-                    boolean isVisible = jsonMsg.getBoolean("isVisible");
-                    this.SetVisible(isVisible);
-                    break;
-                case MSG_ANDROID_KEY_DOWN:
-                    String strKey = jsonMsg.getString("key");
-                    this.OnForceAndroidKeyDown(strKey);
-                    break;
-            }
+    // Immutable snapshot of a box, published by the UI thread so Unity can read it synchronously.
+    static final class State {
+        final String text;
+        final int selectionStart;
+        final int selectionEnd;
+        final boolean isFocused;
+
+        State(String text, int selectionStart, int selectionEnd, boolean isFocused) {
+            this.text = text;
+            this.selectionStart = selectionStart;
+            this.selectionEnd = selectionEnd;
+            this.isFocused = isFocused;
+        }
 
-        } catch (JSONException e) {
+        JSONObject toJson() throws JSONException {
+            JSONObject json = new JSONObject();
+            json.put("bError", false);
+            json.put("text", text);
+            json.put("selectionStart", selectionStart);
+            json.put("selectionEnd", selectionEnd);
+            json.put("isFocused", isFocused);
+            return json;
         }
     }
 
-    private void SendJsonToUnity(JSONObject jsonToUnity) {
-        try {
-            jsonToUnity.put("senderId", this.tag);
-        } catch (JSONException e) {
+    // null while the box is virtual, see lazyViews.
+    private EditTextLifeCycle edit;
+    private final PluginHost host;
+    private final RelativeLayout layout;
+    private int tag;
+    private CreateSpec spec;
+    private CharacterLimitFilter limitFilter;
+    // What the view shows, kept so the view can be released and created again.
+    private double relX, relY, relWidth, relHeight;
+    private float fontSize;
+    private boolean visible = true;
+    private int selectionStart, selectionEnd;
+    private String textChangeMode = TEXT_CHANGE_FULL;
+    private int textChangeInterval;
+    private long lastTextChangeTime;
+    private boolean textChangePending;
+    // Text of a box without a view, null while it has one. It carries the filters of the view, so it is edited in
+    // place like the view's Editable.
+    private Editable virtualText;
+    // What GetEditBoxState reads, kept up to date edit by edit.
+    private final StateMirror mirror = new StateMirror();
+    private SharedTextBuffer sharedText = null;
+    private final Runnable sendPendingTextChange = new Runnable() {
+        @Override
+        public void run() {
+            textChangePending = false;
+            sendTextChange(currentText());
         }
-        NativeEditPlugin.SendUnityMessage(jsonToUnity);
-    }
+    };
+    // Autocomplete from a SuggestionIndex, see setSuggestions. suggestionIndexId is 0 while disabled.
+    private int suggestionIndexId;
+    private int suggestionMax;
+    private int suggestionInterval;
+    private long lastSuggestionTime;
+    private boolean suggestionPending;
+    private String lastSuggestionQuery = "";
+    private final Runnable querySuggestionsLater = new Runnable() {
+        @Override
+        public void run() {
+            suggestionPending = false;
+            querySuggestions();
+        }
+    };
+    // Creates the view of a box that is shown, or releases the view of a box that stayed hidden. A removed box is
+    // left alone, so a late run can't attach a view nobody removes.
+    private final Runnable updateView = new Runnable() {
+        @Override
+        public void run() {
+            if (host.getBox(tag) != EditBox.this)
+                return;
+            if (edit == null) {
+                if (visible || !host.lazyViews)
+                    createView();
+            } else if (host.lazyViews && !visible && !edit.isFocused()) {
+                releaseView();
+            }
+        }
+    };
+    // SetTextChunked in progress: loadText is appended to the view loadChunk chars per frame, Unity hears of it once
+    // the last chunk is in. loadText is null while no load runs.
+    private String loadText;
+    private int loadPos;
+    private int loadChunk;
+    private int loadPreviousLength;
+    private final Choreographer.FrameCallback appendChunk = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            appendNextChunk();
+        }
+    };
+    // Last pixel rect applied to edit, so repeated SetRect calls with the same rect skip the relayout.
+    private int rectX = Integer.MIN_VALUE;
+    private int rectY = Integer.MIN_VALUE;
+    private int rectWidth = Integer.MIN_VALUE;
+    private int rectHeight = Integer.MIN_VALUE;
+
+    // How the focused box is kept clear of the keyboard, see PluginHost.keyboardAvoidance.
+    // Scroll: scroll rootView in one step. Translate: animate the translationY of rootView.
+    // Report: leave the views alone and send the offset to Unity as KeyboardOffset.
+    static final int AVOID_SCROLL = 0;
+    static final int AVOID_TRANSLATE = 1;
+    static final int AVOID_REPORT = 2;
 
-    private void Create(int _tag, JSONObject jsonObj) {
-        this.tag = _tag;
+    private static final String MSG_TEXT_CHANGE = "TextChange";
+    private static final String MSG_TEXT_BEGIN_EDIT = "TextBeginEdit";
+    private static final String MSG_TEXT_END_EDIT = "TextEndEdit";
+    private static final String MSG_RETURN_PRESSED = "ReturnPressed";
+    private static final String MSG_TEXT_DELTA = "TextDelta";
+    private static final String MSG_TEXT_CHANGE_SHARED = "TextChangeShared";
+    private static final String MSG_KEYBOARD_OFFSET = "KeyboardOffset";
+    private static final String MSG_SUGGESTIONS = "Suggestions";
+    // Every event the plugin sends to Unity.
+    static final String[] MSG_NAMES = {MSG_TEXT_CHANGE, MSG_TEXT_BEGIN_EDIT, MSG_TEXT_END_EDIT, MSG_RETURN_PRESSED,
+            MSG_TEXT_DELTA, MSG_TEXT_CHANGE_SHARED, MSG_KEYBOARD_OFFSET, MSG_SUGGESTIONS,
+            PluginHost.MSG_KEYBOARD_HEIGHT_CHANGED};
+
+    // How TextChange events are reported to Unity.
+    // Full: whole text on every edit. Throttled: whole text at most once per textChangeInterval ms, trailing edge
+    // always delivered. Delta: TextDelta events with start/before/inserted taken from onTextChanged.
+    // Shared: the text is kept in a SharedTextBuffer and TextChangeShared only carries its version and length.
+    // None: no TextChange events, Unity reads the text through GetEditBoxText or GetEditBoxState when it needs it.
+    static final String TEXT_CHANGE_FULL = "Full";
+    static final String TEXT_CHANGE_THROTTLED = "Throttled";
+    static final String TEXT_CHANGE_DELTA = "Delta";
+    static final String TEXT_CHANGE_NONE = "None";
+    static final String TEXT_CHANGE_SHARED = "Shared";
+
+    // Everything CreateEdit carries, filled either from JSON or from a binary OP_CREATE message.
+    static final class CreateParams {
+        double x, y, width, height;
+        int characterLimit;
+        int textColor, backColor, placeHolderColor;
+        float fontSize;
+        String placeHolder = "";
+        String font = "";
+        String contentType = "";
+        String inputType = "";
+        String keyboardType = "";
+        String returnKeyType = "";
+        String alignment = "";
+        boolean multiline;
+        String textChangeMode = TEXT_CHANGE_FULL;
+        int textChangeInterval;
+        String characterLimitUnit = CharacterLimitFilter.UNIT_CODE_UNITS;
+        // Id of a rule registered with RegisterValidationRule, 0 for none.
+        int validationRule;
+
+        void readJson(JSONObject jsonObj) throws JSONException {
+            readJsonRect(jsonObj);
+            readJsonStyle(jsonObj);
+        }
 
-        try {
-            String placeHolder = jsonObj.getString("placeHolder");
+        // Everything of CreateEdit but the rect, with the same required keys. A RegisterStyle missing one of them
+        // is rejected like such a CreateEdit, rather than registering a style with transparent text at 0px.
+        void readJsonStyle(JSONObject jsonObj) throws JSONException {
+            fontSize = (float) jsonObj.getDouble("fontSize");
 
-            String font = jsonObj.getString("font");
+            placeHolder = jsonObj.getString("placeHolder");
+            font = jsonObj.getString("font");
             characterLimit = jsonObj.getInt("characterLimit");
 
-            int textColor_r = (int) (255.0f * jsonObj.getDouble("textColor_r"));
-            int textColor_g = (int) (255.0f * jsonObj.getDouble("textColor_g"));
-            int textColor_b = (int) (255.0f * jsonObj.getDouble("textColor_b"));
-            int textColor_a = (int) (255.0f * jsonObj.getDouble("textColor_a"));
-            int backColor_r = (int) (255.0f * jsonObj.getDouble("backColor_r"));
-            int backColor_g = (int) (255.0f * jsonObj.getDouble("backColor_g"));
-            int backColor_b = (int) (255.0f * jsonObj.getDouble("backColor_b"));
-            int backColor_a = (int) (255.0f * jsonObj.getDouble("backColor_a"));
-            int placeHolderColor_r = (int) (255.0f * jsonObj.getDouble("placeHolderColor_r"));
-            int placeHolderColor_g = (int) (255.0f * jsonObj.getDouble("placeHolderColor_g"));
-            int placeHolderColor_b = (int) (255.0f * jsonObj.getDouble("placeHolderColor_b"));
-            int placeHolderColor_a = (int) (255.0f * jsonObj.getDouble("placeHolderColor_a"));
+            textColor = readJsonColor(jsonObj, "textColor");
+            backColor = readJsonColor(jsonObj, "backColor");
+            placeHolderColor = readJsonColor(jsonObj, "placeHolderColor");
+
+            contentType = jsonObj.getString("contentType");
+            inputType = jsonObj.optString("inputType");
+            keyboardType = jsonObj.optString("keyboardType");
+            returnKeyType = jsonObj.getString("return_key_type");
 
-            String contentType = jsonObj.getString("contentType");
-            String inputType = jsonObj.optString("inputType");
-            String keyboardType = jsonObj.optString("keyboardType");
-            String returnKeyType = jsonObj.getString("return_key_type");
+            alignment = jsonObj.getString("align");
+            multiline = jsonObj.getBoolean("multiline");
 
-            String alignment = jsonObj.getString("align");
-            boolean multiline = jsonObj.getBoolean("multiline");
+            textChangeMode = jsonObj.optString("textChangeMode", TEXT_CHANGE_FULL);
+            textChangeInterval = jsonObj.optInt("textChangeInterval", 0);
+            characterLimitUnit = jsonObj.optString("characterLimitUnit", CharacterLimitFilter.UNIT_CODE_UNITS);
+            validationRule = jsonObj.optInt("validationRule", 0);
+        }
+
+        void readJsonRect(JSONObject jsonObj) throws JSONException {
+            x = jsonObj.getDouble("x");
+            y = jsonObj.getDouble("y");
+            width = jsonObj.getDouble("width");
+            height = jsonObj.getDouble("height");
+        }
 
-            edit = new EditTextLifeCycle(NativeEditPlugin.unityActivity.getApplicationContext(), this);
+        // Overlays the keys present in jsonObj, for a CreateEdit based on a registered style. Returns the
+        // MsgCodec.OVERRIDE_* bits of the keys found, the same set an OP_CREATE_STYLED carries.
+        int readJsonOverrides(JSONObject jsonObj) throws JSONException {
+            int overrides = 0;
+            if (jsonObj.has("characterLimit")) {
+                characterLimit = jsonObj.getInt("characterLimit");
+                overrides |= MsgCodec.OVERRIDE_CHARACTER_LIMIT;
+            }
+            if (jsonObj.has("textColor_r")) {
+                textColor = readJsonColor(jsonObj, "textColor");
+                overrides |= MsgCodec.OVERRIDE_TEXT_COLOR;
+            }
+            if (jsonObj.has("backColor_r")) {
+                backColor = readJsonColor(jsonObj, "backColor");
+                overrides |= MsgCodec.OVERRIDE_BACK_COLOR;
+            }
+            if (jsonObj.has("placeHolderColor_r")) {
+                placeHolderColor = readJsonColor(jsonObj, "placeHolderColor");
+                overrides |= MsgCodec.OVERRIDE_PLACEHOLDER_COLOR;
+            }
+            if (jsonObj.has("fontSize")) {
+                fontSize = (float) jsonObj.getDouble("fontSize");
+                overrides |= MsgCodec.OVERRIDE_FONT_SIZE;
+            }
+            if (jsonObj.has("multiline")) {
+                multiline = jsonObj.getBoolean("multiline");
+                overrides |= MsgCodec.OVERRIDE_MULTILINE;
+            }
+            if (jsonObj.has("contentType")) {
+                contentType = jsonObj.getString("contentType");
+                overrides |= MsgCodec.OVERRIDE_CONTENT_TYPE;
+            }
+            if (jsonObj.has("keyboardType")) {
+                keyboardType = jsonObj.getString("keyboardType");
+                overrides |= MsgCodec.OVERRIDE_KEYBOARD_TYPE;
+            }
+            if (jsonObj.has("inputType")) {
+                inputType = jsonObj.getString("inputType");
+                overrides |= MsgCodec.OVERRIDE_INPUT_TYPE;
+            }
+            if (jsonObj.has("return_key_type")) {
+                returnKeyType = jsonObj.getString("return_key_type");
+                overrides |= MsgCodec.OVERRIDE_RETURN_KEY_TYPE;
+            }
+            if (jsonObj.has("align")) {
+                alignment = jsonObj.getString("align");
+                overrides |= MsgCodec.OVERRIDE_ALIGN;
+            }
+            if (jsonObj.has("placeHolder")) {
+                placeHolder = jsonObj.getString("placeHolder");
+                overrides |= MsgCodec.OVERRIDE_PLACEHOLDER;
+            }
+            if (jsonObj.has("font")) {
+                font = jsonObj.getString("font");
+                overrides |= MsgCodec.OVERRIDE_FONT;
+            }
+            if (jsonObj.has("textChangeMode")) {
+                textChangeMode = jsonObj.getString("textChangeMode");
+                overrides |= MsgCodec.OVERRIDE_TEXT_CHANGE_MODE;
+            }
+            if (jsonObj.has("textChangeInterval")) {
+                textChangeInterval = jsonObj.getInt("textChangeInterval");
+                overrides |= MsgCodec.OVERRIDE_TEXT_CHANGE_INTERVAL;
+            }
+            if (jsonObj.has("characterLimitUnit")) {
+                characterLimitUnit = jsonObj.getString("characterLimitUnit");
+                overrides |= MsgCodec.OVERRIDE_CHARACTER_LIMIT_UNIT;
+            }
+            if (jsonObj.has("validationRule")) {
+                validationRule = jsonObj.getInt("validationRule");
+                overrides |= MsgCodec.OVERRIDE_VALIDATION_RULE;
+            }
+            return overrides;
+        }
 
-            // It's important to set this first as it resets some things, for example character hiding if content type is password.
-            edit.setSingleLine(!multiline);
+        CreateParams copy() {
+            CreateParams p = new CreateParams();
+            p.x = x;
+            p.y = y;
+            p.width = width;
+            p.height = height;
+            p.characterLimit = characterLimit;
+            p.textColor = textColor;
+            p.backColor = backColor;
+            p.placeHolderColor = placeHolderColor;
+            p.fontSize = fontSize;
+            p.placeHolder = placeHolder;
+            p.font = font;
+            p.contentType = contentType;
+            p.inputType = inputType;
+            p.keyboardType = keyboardType;
+            p.returnKeyType = returnKeyType;
+            p.alignment = alignment;
+            p.multiline = multiline;
+            p.textChangeMode = textChangeMode;
+            p.textChangeInterval = textChangeInterval;
+            p.characterLimitUnit = characterLimitUnit;
+            p.validationRule = validationRule;
+            return p;
+        }
 
-            edit.setId(0);
-            edit.setText("");
-            edit.setHint(placeHolder);
+        private static int readJsonColor(JSONObject jsonObj, String name) throws JSONException {
+            int r = (int) (255.0f * jsonObj.getDouble(name + "_r"));
+            int g = (int) (255.0f * jsonObj.getDouble(name + "_g"));
+            int b = (int) (255.0f * jsonObj.getDouble(name + "_b"));
+            int a = (int) (255.0f * jsonObj.getDouble(name + "_a"));
+            return Color.argb(a, r, g, b);
+        }
+    }
 
-            this.SetRect(jsonObj);
-            edit.setPadding(0, 0, 0, 0);
+    // CreateParams with the enum-like strings resolved to the flags the views take and the font to a Typeface.
+    // Immutable, so it is built on the Unity thread and the UI thread only applies it.
+    static final class CreateSpec {
+        final double x, y, width, height;
+        final int characterLimit;
+        final String characterLimitUnit;
+        final int textColor, backColor, placeHolderColor;
+        final float fontSize;
+        final String placeHolder;
+        final Typeface typeface;
+        final boolean multiline;
+        final int inputType;
+        final int gravity;
+        final int imeOptions;
+        // null if the content type accepts any input and no rule is set.
+        final InputValidator validator;
+        final String textChangeMode;
+        final int textChangeInterval;
+
+        // resolved is a spec built from the same contentType, inputType, keyboardType, return key, alignment,
+        // multiline, font and validation rule, whose resolved values are reused. Pass null to resolve them.
+        CreateSpec(CreateParams params, CreateSpec resolved, Context context) {
+            x = params.x;
+            y = params.y;
+            width = params.width;
+            height = params.height;
+            characterLimit = params.characterLimit;
+            characterLimitUnit = params.characterLimitUnit;
+            textColor = params.textColor;
+            backColor = params.backColor;
+            placeHolderColor = params.placeHolderColor;
+            fontSize = params.fontSize;
+            placeHolder = params.placeHolder;
+            multiline = params.multiline;
+            if (resolved != null) {
+                inputType = resolved.inputType;
+                gravity = resolved.gravity;
+                imeOptions = resolved.imeOptions;
+                typeface = resolved.typeface;
+                validator = resolved.validator;
+            } else {
+                inputType = resolveInputType(params.contentType, params.keyboardType, params.inputType, multiline);
+                gravity = resolveGravity(params.alignment);
+                imeOptions = resolveImeOptions(params.returnKeyType, multiline);
+                typeface = context != null && params.font != null && !params.font.isEmpty()
+                        ? TypefaceCache.get(context, params.font) : null;
+                validator = InputValidator.create(params.contentType, params.validationRule);
+            }
+            textChangeMode = params.textChangeMode;
+            textChangeInterval = params.textChangeInterval;
+        }
 
+        static int resolveInputType(String contentType, String keyboardType, String inputType, boolean multiline) {
             int editInputType = 0;
             switch (contentType) {
                 case "Standard":
@@ -320,8 +539,10 @@ public class EditBox {
             }
             if (multiline)
                 editInputType |= InputType.TYPE_TEXT_FLAG_MULTI_LINE;
-            edit.setInputType(editInputType);
+            return editInputType;
+        }
 
+        static int resolveGravity(String alignment) {
             int gravity = 0;
             switch (alignment) {
                 case "UpperLeft":
@@ -352,8 +573,10 @@ public class EditBox {
                     gravity = Gravity.BOTTOM | Gravity.END;
                     break;
             }
-            edit.setGravity(gravity);
+            return gravity;
+        }
 
+        static int resolveImeOptions(String returnKeyType, boolean multiline) {
             int imeOptions = EditorInfo.IME_FLAG_NO_EXTRACT_UI;
             if (!multiline)
                 switch (returnKeyType) {
@@ -370,202 +593,751 @@ public class EditBox {
                         imeOptions |= EditorInfo.IME_ACTION_GO;
                         break;
                 }
-            edit.setImeOptions(imeOptions);
+            return imeOptions;
+        }
+    }
+
+    // Applies a command decoded on the Unity thread. Returns its opcode, 0 if it could not be decoded.
+    static byte processCommand(PluginHost host, EditCommand cmd) {
+        if (cmd.op == MsgCodec.OP_CREATE) {
+            EditBox nb = new EditBox(host);
+            nb.Create(cmd.senderId, cmd.create);
+            host.addBox(cmd.senderId, nb);
+        } else if (cmd.op != 0 && cmd.op != MsgCodec.OP_REGISTER_STYLE) {
+            EditBox eb = host.getBox(cmd.senderId);
+            if (eb != null) {
+                eb.applyCommand(cmd);
+            } else {
+                Log.e(NativeEditPlugin.LOG_TAG, "EditBox not found, id : " + cmd.senderId);
+            }
+        }
+        return cmd.op;
+    }
 
-            this.SetTextSize(jsonObj);
-            edit.setTextColor(Color.argb(textColor_a, textColor_r, textColor_g, textColor_b));
-            edit.setBackgroundColor(Color.argb(backColor_a, backColor_r, backColor_g, backColor_b));
-            edit.setHintTextColor(Color.argb(placeHolderColor_a, placeHolderColor_r, placeHolderColor_g, placeHolderColor_b));
+    @SuppressLint("ClickableViewAccessibility")
+    private EditBox(PluginHost pluginHost) {
+        host = pluginHost;
+        layout = pluginHost.mainLayout;
+        edit = null;
 
-            if (font != null && !font.isEmpty()) {
-                Typeface tf = Typeface.create(font, Typeface.NORMAL);
-                edit.setTypeface(tf);
+        //Tap on the layout to clear focus of EditText
+        layout.setOnTouchListener(new View.OnTouchListener() {
+            @Override
+            public boolean onTouch(View view, MotionEvent motionEvent) {
+                layout.setFocusable(true);
+                layout.setFocusableInTouchMode(true);
+                layout.requestFocus();
+                return false;
             }
+        });
+    }
 
-            final EditBox eb = this;
+    private void showKeyboard(boolean isShow) {
+        InputMethodManager inputMethodManager = host.getInputMethodManager();
+        if (isShow) {
+            inputMethodManager.showSoftInput(edit, InputMethodManager.SHOW_FORCED);
+            adjustForKeyboard();
+        } else {
+            host.activity.getWindow().getDecorView().clearFocus();
+            inputMethodManager.hideSoftInputFromWindow(layout.getWindowToken(), 0);
+            applyKeyboardOffset(0);
+        }
+    }
 
-            edit.setOnFocusChangeListener(new View.OnFocusChangeListener() {
-                @Override
-                public void onFocusChange(View v, boolean hasFocus) {
+    void adjustForKeyboard() {
+        int keyboardHeight = host.keyboardMetrics.getExpectedHeight();
+        int offset = 0;
+        RelativeLayout.LayoutParams lp = (RelativeLayout.LayoutParams) edit.getLayoutParams();
+        int bottomMargin = layout.getHeight() - lp.topMargin - lp.height;
+        if (bottomMargin < keyboardHeight)
+            // Keyboard will cover the EditText. Move rootView up to show whole area of EditText just above keyboard.
+            offset = keyboardHeight - bottomMargin;
+        applyKeyboardOffset(offset);
+    }
 
-                    JSONObject msgTextEndJSON = new JSONObject();
-                    try {
-                        msgTextEndJSON.put("msg", hasFocus ? MSG_TEXT_BEGIN_EDIT : MSG_TEXT_END_EDIT);
-                        msgTextEndJSON.put("text", eb.GetText());
-                    } catch (JSONException e) {
-                    }
-                    eb.SendJsonToUnity(msgTextEndJSON);
-                    SetFocus(hasFocus);
+    private void applyKeyboardOffset(int offset) {
+        if (offset == host.keyboardOffset)
+            return;
+        host.keyboardOffset = offset;
+        switch (host.keyboardAvoidance) {
+            case AVOID_TRANSLATE:
+                // translationY is a render node property, so the animation doesn't relayout or redraw the content.
+                host.rootView.animate().translationY(-offset).setDuration(host.keyboardAvoidanceDuration).start();
+                break;
+            case AVOID_REPORT:
+                JSONObject json = new JSONObject();
+                try {
+                    json.put("msg", MSG_KEYBOARD_OFFSET);
+                    json.put("offset", offset);
+                } catch (JSONException e) {
                 }
-            });
+                SendJsonToUnity(json);
+                break;
+            default:
+                host.rootView.setScrollY(offset);
+                break;
+        }
+    }
 
-            edit.addTextChangedListener(new TextWatcher() {
+    // Selects how a focused box is kept above the keyboard. Any offset applied in the previous mode is undone.
+    static void setKeyboardAvoidance(PluginHost host, int mode, int durationMs) {
+        host.keyboardAvoidance = mode;
+        host.keyboardAvoidanceDuration = Math.max(0, durationMs);
+        View root = host.rootView;
+        root.animate().cancel();
+        root.setTranslationY(0);
+        root.setScrollY(0);
+        host.keyboardOffset = 0;
+        if (host.focusedBox != null)
+            host.focusedBox.adjustForKeyboard();
+    }
 
-                public void afterTextChanged(Editable s) {
-                    if (characterLimit > 0 && s.length() >= characterLimit + 1) {
-                        s.delete(s.length() - 1, s.length());
-                        edit.removeTextChangedListener(this);
-                        edit.setText(s);
-                        edit.setSelection(s.length());
-                        edit.addTextChangedListener(this);
-                    }
+    // Turning lazy views off creates the views of all virtual boxes, turning them on releases the hidden ones.
+    static void setLazyViews(PluginHost host, boolean enable, int releaseDelayMs) {
+        host.lazyViews = enable;
+        host.lazyViewReleaseDelay = Math.max(0, releaseDelayMs);
+        for (int i = 0; i < host.boxCount(); i++) {
+            EditBox box = host.boxAt(i);
+            box.layout.removeCallbacks(box.updateView);
+            box.updateView.run();
+        }
+    }
+
+    private void notifyFocusChanged(boolean hasWindowFocus) {
+        if (!hasWindowFocus)
+            showKeyboard(false);
+    }
+
+    private void applyCommand(EditCommand cmd) {
+        switch (cmd.op) {
+            case MsgCodec.OP_REMOVE:
+                this.Remove();
+                break;
+            case MsgCodec.OP_SET_TEXT:
+                this.SetText(cmd.text);
+                break;
+            case MsgCodec.OP_REPLACE_TEXT:
+                this.ReplaceText(cmd.start, cmd.end, cmd.text);
+                break;
+            case MsgCodec.OP_SET_TEXT_CHUNKED:
+                this.SetTextChunked(cmd.text, cmd.end);
+                break;
+            case MsgCodec.OP_SET_RECT:
+                this.SetRect(cmd.x, cmd.y, cmd.width, cmd.height);
+                break;
+            case MsgCodec.OP_SET_TEXTSIZE:
+                this.SetTextSize(cmd.fontSize);
+                break;
+            case MsgCodec.OP_SET_FOCUS:
+                this.SetFocus(cmd.flag);
+                break;
+            case MsgCodec.OP_SET_VISIBLE:
+                this.SetVisible(cmd.flag);
+                break;
+            case MsgCodec.OP_ANDROID_KEY_DOWN:
+                this.OnForceAndroidKeyDown(cmd.keyCode);
+                break;
+        }
+    }
+
+    void SendJsonToUnity(JSONObject jsonToUnity) {
+        try {
+            jsonToUnity.put("senderId", this.tag);
+        } catch (JSONException e) {
+        }
+        NativeEditPlugin.SendUnityMessage(jsonToUnity);
+    }
+
+    private void Create(int _tag, CreateSpec spec) {
+        this.tag = _tag;
+        this.spec = spec;
+
+        textChangeMode = spec.textChangeMode;
+        textChangeInterval = spec.textChangeInterval;
+        if (textChangeMode.equals(TEXT_CHANGE_SHARED)) {
+            sharedText = new SharedTextBuffer();
+            host.sharedTextMap.put(_tag, sharedText);
+        }
+        if (spec.characterLimit > 0)
+            limitFilter = new CharacterLimitFilter(spec.characterLimit, spec.characterLimitUnit);
+        relX = spec.x;
+        relY = spec.y;
+        relWidth = spec.width;
+        relHeight = spec.height;
+        fontSize = spec.fontSize;
+        virtualText = newVirtualText("");
+        host.stateMap.put(_tag, mirror);
+
+        // A lazy box gets its view after the messages being applied, so one hidden right after it is created never
+        // builds it.
+        if (host.lazyViews)
+            layout.post(updateView);
+        else
+            createView();
+        publishState();
+    }
+
+    private void createView() {
+        edit = EditTextPool.acquire(host.activity.getApplicationContext());
+        edit.observerBox = this;
+
+        // It's important to set this first as it resets some things, for example character hiding if content type is password.
+        edit.setSingleLine(!spec.multiline);
+
+        edit.setId(0);
+        // Listeners are attached below, so restoring the text of a released view reports nothing.
+        edit.setText(virtualText);
+        edit.setSelection(Math.min(selectionStart, virtualText.length()), Math.min(selectionEnd, virtualText.length()));
+        virtualText = null;
+        edit.setHint(spec.placeHolder);
+        edit.setFilters(filters());
+
+        applyRect();
+        edit.setPadding(0, 0, 0, 0);
+
+        edit.setInputType(spec.inputType);
+        edit.setGravity(spec.gravity);
+        edit.setImeOptions(spec.imeOptions);
+
+        edit.setTextSize(TypedValue.COMPLEX_UNIT_PX, fontSize);
+        edit.setTextColor(spec.textColor);
+        edit.setBackgroundColor(spec.backColor);
+        edit.setHintTextColor(spec.placeHolderColor);
+
+        if (spec.typeface != null)
+            edit.setTypeface(spec.typeface);
+
+        final EditBox eb = this;
+
+        edit.setOnFocusChangeListener(new View.OnFocusChangeListener() {
+            @Override
+            public void onFocusChange(View v, boolean hasFocus) {
+                if (hasFocus)
+                    host.focusedBox = host.keyboardOwner = eb;
+                else if (host.focusedBox == eb)
+                    host.focusedBox = null;
+                host.keyboardMetrics.setTracking(host.focusedBox != null);
+
+                // TextEndEdit carries the full text, so a pending throttled TextChange is redundant.
+                if (!hasFocus)
+                    cancelPendingTextChange();
+                // A hidden box keeps its view while it has focus.
+                if (!hasFocus && host.lazyViews && !visible)
+                    layout.postDelayed(updateView, host.lazyViewReleaseDelay);
+
+                JSONObject msgTextEndJSON = new JSONObject();
+                try {
+                    msgTextEndJSON.put("msg", hasFocus ? MSG_TEXT_BEGIN_EDIT : MSG_TEXT_END_EDIT);
+                    msgTextEndJSON.put("text", eb.GetText());
+                } catch (JSONException e) {
+                }
+                eb.SendJsonToUnity(msgTextEndJSON);
+                SetFocus(hasFocus);
+                eb.publishState();
+            }
+        });
 
+        edit.setTextWatcher(new TextWatcher() {
+
+            public void afterTextChanged(Editable s) {
+                if (loadText == null)
+                    eb.onTextEdited(s);
+            }
+
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+                mirror.replace(start, start + before, s, start, start + count);
+                if (textChangeMode.equals(TEXT_CHANGE_DELTA) && loadText == null)
+                    eb.sendTextDelta(start, before, s.subSequence(start, start + count).toString());
+            }
+        });
+
+        edit.setOnEditorActionListener(new TextView.OnEditorActionListener() {
+            @Override
+            public boolean onEditorAction(TextView v, int actionId, KeyEvent event) {
+                if (actionId == EditorInfo.IME_ACTION_NEXT
+                        || actionId == EditorInfo.IME_ACTION_DONE
+                        || actionId == EditorInfo.IME_ACTION_SEND
+                        || actionId == EditorInfo.IME_ACTION_GO) {
                     JSONObject jsonToUnity = new JSONObject();
                     try {
-                        jsonToUnity.put("msg", MSG_TEXT_CHANGE);
-                        jsonToUnity.put("text", s.toString());
+                        jsonToUnity.put("msg", MSG_RETURN_PRESSED);
                     } catch (JSONException e) {
                     }
+
                     eb.SendJsonToUnity(jsonToUnity);
+                    return true;
                 }
+                return false;
+            }
+        });
 
-                @Override
-                public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+        layout.addView(edit);
+        SetVisible(visible);
+    }
 
-                }
+    // The validator runs first, so the limit counts the text that is actually inserted.
+    private InputFilter[] filters() {
+        if (spec.validator != null && limitFilter != null)
+            return new InputFilter[]{spec.validator, limitFilter};
+        if (spec.validator != null)
+            return new InputFilter[]{spec.validator};
+        if (limitFilter != null)
+            return new InputFilter[]{limitFilter};
+        return EditTextLifeCycle.NO_FILTERS;
+    }
 
-                @Override
-                public void onTextChanged(CharSequence s, int start, int before, int count) {
+    private Editable newVirtualText(CharSequence text) {
+        Editable virtual = new SpannableStringBuilder(text);
+        virtual.setFilters(filters());
+        return virtual;
+    }
 
-                }
-            });
-
-            edit.setOnEditorActionListener(new TextView.OnEditorActionListener() {
-                @Override
-                public boolean onEditorAction(TextView v, int actionId, KeyEvent event) {
-                    if (actionId == EditorInfo.IME_ACTION_NEXT
-                            || actionId == EditorInfo.IME_ACTION_DONE
-                            || actionId == EditorInfo.IME_ACTION_SEND
-                            || actionId == EditorInfo.IME_ACTION_GO) {
-                        JSONObject jsonToUnity = new JSONObject();
-                        try {
-                            jsonToUnity.put("msg", MSG_RETURN_PRESSED);
-                        } catch (JSONException e) {
-                        }
-
-                        eb.SendJsonToUnity(jsonToUnity);
-                        return true;
+    // Keeps the text, selection and rect of the view and gives it back to the pool.
+    private void releaseView() {
+        finishLoad();
+        virtualText = newVirtualText(edit.getText().toString());
+        selectionStart = edit.getSelectionStart();
+        selectionEnd = edit.getSelectionEnd();
+        layout.removeView(edit);
+        EditTextPool.release(edit);
+        edit = null;
+        rectX = rectY = rectWidth = rectHeight = Integer.MIN_VALUE;
+    }
+
+    private void onSelectionChanged() {
+        publishState();
+        // Moving the cursor changes the word suggestions are looked up for, a text change moves it as well.
+        if (suggestionIndexId != 0)
+            throttleSuggestions();
+    }
+
+    private void onTextEdited(CharSequence s) {
+        boolean reallocated = false;
+        if (sharedText != null)
+            reallocated = sharedText.write(s);
+        publishState();
+
+        switch (textChangeMode) {
+            case TEXT_CHANGE_THROTTLED:
+                throttleTextChange(s);
+                break;
+            case TEXT_CHANGE_DELTA:
+                break; // Already sent from onTextChanged
+            case TEXT_CHANGE_NONE:
+                break;
+            case TEXT_CHANGE_SHARED:
+                sendSharedTextChange(reallocated, s.length());
+                break;
+            default:
+                sendTextChange(s);
+                break;
+        }
+        // The cursor of a view only moves after the watchers ran, onSelectionChanged looks that up.
+        if (suggestionIndexId != 0 && edit == null)
+            throttleSuggestions();
+    }
+
+    // Text of the box, with or without a view.
+    private CharSequence currentText() {
+        return edit != null ? edit.getText() : virtualText;
+    }
+
+    // The text is mirrored as it changes, this only publishes the selection and focus.
+    private void publishState() {
+        if (edit == null)
+            mirror.setSelection(selectionStart, selectionEnd, false);
+        else
+            mirror.setSelection(edit.getSelectionStart(), edit.getSelectionEnd(), edit.isFocused());
+    }
+
+    private void sendTextDelta(int start, int before, String inserted) {
+        JSONObject jsonToUnity = new JSONObject();
+        try {
+            jsonToUnity.put("msg", MSG_TEXT_DELTA);
+            jsonToUnity.put("start", start);
+            jsonToUnity.put("before", before);
+            jsonToUnity.put("inserted", inserted);
+        } catch (JSONException e) {
+        }
+        SendJsonToUnity(jsonToUnity);
+    }
+
+    private void sendSharedTextChange(boolean reallocated, int length) {
+        JSONObject jsonToUnity = new JSONObject();
+        try {
+            jsonToUnity.put("msg", MSG_TEXT_CHANGE_SHARED);
+            jsonToUnity.put("version", sharedText.getVersion());
+            jsonToUnity.put("length", length);
+            jsonToUnity.put("reallocated", reallocated);
+        } catch (JSONException e) {
+        }
+        SendJsonToUnity(jsonToUnity);
+    }
+
+    private void sendTextChange(CharSequence s) {
+        lastTextChangeTime = SystemClock.uptimeMillis();
+        JSONObject jsonToUnity = new JSONObject();
+        try {
+            jsonToUnity.put("msg", MSG_TEXT_CHANGE);
+            jsonToUnity.put("text", s.toString());
+        } catch (JSONException e) {
+        }
+        SendJsonToUnity(jsonToUnity);
+    }
+
+    private void throttleTextChange(CharSequence s) {
+        if (textChangePending)
+            return; // The trailing send picks up the latest text
+        long elapsed = SystemClock.uptimeMillis() - lastTextChangeTime;
+        if (elapsed >= textChangeInterval) {
+            sendTextChange(s);
+        } else {
+            textChangePending = true;
+            layout.postDelayed(sendPendingTextChange, textChangeInterval - elapsed);
+        }
+    }
+
+    private void cancelPendingTextChange() {
+        if (textChangePending) {
+            textChangePending = false;
+            layout.removeCallbacks(sendPendingTextChange);
+        }
+    }
+
+    // Sends the top maxResults entries of the index starting with the word at the cursor as a Suggestions event,
+    // at most once per intervalMs while typing. indexId 0 turns suggestions off.
+    void setSuggestions(int indexId, int maxResults, int intervalMs) {
+        suggestionIndexId = indexId;
+        suggestionMax = Math.max(0, maxResults);
+        suggestionInterval = Math.max(0, intervalMs);
+        lastSuggestionQuery = "";
+        if (suggestionPending) {
+            suggestionPending = false;
+            layout.removeCallbacks(querySuggestionsLater);
+        }
+    }
+
+    private void throttleSuggestions() {
+        if (suggestionPending)
+            return; // The trailing query picks up the latest text
+        long elapsed = SystemClock.uptimeMillis() - lastSuggestionTime;
+        if (elapsed >= suggestionInterval) {
+            querySuggestions();
+        } else {
+            suggestionPending = true;
+            layout.postDelayed(querySuggestionsLater, suggestionInterval - elapsed);
+        }
+    }
+
+    // The lookup runs on the SuggestionIndex worker. Its result is sent from the UI thread, unless the box was
+    // removed or its text moved on in the meantime.
+    private void querySuggestions() {
+        final String query = wordAtCursor();
+        // Without a loaded index the query isn't recorded, so the next edit once it is loaded looks it up.
+        if (query.equals(lastSuggestionQuery) || SuggestionIndex.get(suggestionIndexId) == null)
+            return;
+        lastSuggestionQuery = query;
+        lastSuggestionTime = SystemClock.uptimeMillis();
+        final int indexId = suggestionIndexId;
+        final int maxResults = suggestionMax;
+        SuggestionIndex.post(new Runnable() {
+            @Override
+            public void run() {
+                SuggestionIndex index = SuggestionIndex.get(indexId);
+                if (index == null)
+                    return;
+                final ArrayList<String> items = query.isEmpty()
+                        ? new ArrayList<String>() : index.lookup(query, maxResults);
+                layout.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (host.getBox(tag) == EditBox.this && query.equals(lastSuggestionQuery))
+                            sendSuggestions(query, items);
                     }
-                    return false;
-                }
-            });
+                });
+            }
+        });
+    }
 
-            layout.addView(edit);
+    private String wordAtCursor() {
+        CharSequence text = currentText();
+        int end = edit != null ? edit.getSelectionEnd() : selectionEnd;
+        if (end < 0 || end > text.length())
+            end = text.length();
+        int start = end;
+        while (start > 0 && !Character.isWhitespace(text.charAt(start - 1)))
+            start--;
+        return text.subSequence(start, end).toString();
+    }
 
+    private void sendSuggestions(String query, ArrayList<String> items) {
+        JSONObject jsonToUnity = new JSONObject();
+        try {
+            jsonToUnity.put("msg", MSG_SUGGESTIONS);
+            jsonToUnity.put("query", query);
+            jsonToUnity.put("items", new JSONArray(items));
         } catch (JSONException e) {
-            Log.i(NativeEditPlugin.LOG_TAG, String.format("Create editbox error %s", e.getMessage()));
         }
+        SendJsonToUnity(jsonToUnity);
     }
 
-    private void Remove() {
-        if (edit != null) {
+    void Remove() {
+        if (loadText != null) {
+            Choreographer.getInstance().removeFrameCallback(appendChunk);
+            loadText = null;
+        }
+        // Removing a focused EditText clears its focus and runs the focus listener, which publishes state again and
+        // may post updateView, so the callbacks are cancelled after it.
+        if (edit != null)
             layout.removeView(edit);
-            editBoxMap.remove(this.tag);
+        layout.removeCallbacks(updateView);
+        layout.removeCallbacks(querySuggestionsLater);
+        cancelPendingTextChange();
+        host.stateMap.remove(this.tag);
+        if (sharedText != null)
+            host.sharedTextMap.remove(this.tag);
+        if (host.focusedBox == this) {
+            host.focusedBox = null;
+            host.keyboardMetrics.setTracking(false);
         }
+        if (host.keyboardOwner == this)
+            host.keyboardOwner = null;
+        if (edit != null)
+            EditTextPool.release(edit);
+        host.removeBox(this.tag);
         edit = null;
     }
 
     private void SetText(String newText) {
-        if (edit != null) {
+        finishLoad();
+        if (edit == null) {
+            setVirtualText(newText);
+        } else {
             int cursorPos = edit.getSelectionStart();
             int previousLength = edit.getText().length();
 
             edit.setText(newText);
+            // The filters may have shortened the text.
+            int newLength = edit.getText().length();
 
             // Update text selection (cursor position) to be the same after editing text
             // If the user had multiple characters selected, we are losing them and get the cursor in only one position
             if (previousLength == cursorPos) {
                 //The cursor was at the end of the text, let us put it again at the end of the text in case more characters were added
-                cursorPos = newText.length();
+                cursorPos = newLength;
             }
 
-            if (cursorPos > newText.length()) {
+            if (cursorPos > newLength) {
                 //Text was deleted, so cursor position is after the end of the text, let's put it at the last position
-                cursorPos = newText.length();
+                cursorPos = newLength;
             }
             edit.setSelection(cursorPos);
         }
     }
 
+    // SetText of a box without a view, reporting to Unity what the TextWatcher would.
+    private void setVirtualText(String newText) {
+        int previousLength = virtualText.length();
+        virtualText.replace(0, previousLength, newText);
+        int length = virtualText.length();
+        if (selectionStart == previousLength || selectionStart > length)
+            selectionStart = length;
+        selectionEnd = selectionStart;
+        mirror.set(virtualText);
+        if (textChangeMode.equals(TEXT_CHANGE_DELTA))
+            sendTextDelta(0, previousLength, virtualText.toString());
+        onTextEdited(virtualText);
+    }
+
+    // Replaces [start, end) of the text in place, clamped to the text. The Editable only lays out again the lines
+    // the edit touches and the TextWatcher reports it like typing, so in Delta mode both cost what the edit does
+    // rather than what the document does. Inserting is start == end, deleting is an empty text.
+    private void ReplaceText(int start, int end, String text) {
+        finishLoad();
+        int length = currentText().length();
+        start = Math.max(0, Math.min(start, length));
+        end = Math.max(start, Math.min(end, length));
+        if (edit != null) {
+            edit.getText().replace(start, end, text);
+            return;
+        }
+
+        virtualText.replace(start, end, text);
+        // The filters may have let through less than text.
+        int inserted = virtualText.length() - (length - (end - start));
+        selectionStart = shiftForReplace(selectionStart, start, end, inserted);
+        selectionEnd = shiftForReplace(selectionEnd, start, end, inserted);
+        mirror.replace(start, end, virtualText, start, start + inserted);
+        if (textChangeMode.equals(TEXT_CHANGE_DELTA))
+            sendTextDelta(start, end - start, virtualText.subSequence(start, start + inserted).toString());
+        onTextEdited(virtualText);
+    }
+
+    // Where a cursor at pos ends up once [start, end) is replaced by inserted chars, as Editable moves it.
+    private static int shiftForReplace(int pos, int start, int end, int inserted) {
+        if (pos >= end)
+            return pos - (end - start) + inserted;
+        if (pos > start)
+            return start + inserted;
+        return pos;
+    }
+
+    // Loads a long text a chunk per frame, so no single frame lays out the whole document. Unity gets one text
+    // change for the whole load, when the last chunk is in. Any other text message, or releasing the view, appends
+    // what is left at once. A box without a view, or a text of at most one chunk, is set like SetText.
+    private void SetTextChunked(String text, int chunkSize) {
+        finishLoad();
+        if (edit == null || chunkSize <= 0 || text.length() <= chunkSize) {
+            SetText(text);
+            return;
+        }
+        loadPreviousLength = edit.getText().length();
+        loadText = text;
+        loadChunk = chunkSize;
+        loadPos = chunkEnd(0);
+        edit.setText(text.substring(0, loadPos));
+        Choreographer.getInstance().postFrameCallback(appendChunk);
+    }
+
+    private void appendNextChunk() {
+        int end = chunkEnd(loadPos);
+        edit.getText().append(loadText.subSequence(loadPos, end));
+        loadPos = end;
+        if (loadPos < loadText.length())
+            Choreographer.getInstance().postFrameCallback(appendChunk);
+        else
+            endLoad();
+    }
+
+    // End of the chunk starting at pos, without splitting a surrogate pair.
+    private int chunkEnd(int pos) {
+        int end = Math.min(pos + loadChunk, loadText.length());
+        if (end < loadText.length() && Character.isHighSurrogate(loadText.charAt(end - 1)))
+            end++;
+        return end;
+    }
+
+    private void finishLoad() {
+        if (loadText == null)
+            return;
+        Choreographer.getInstance().removeFrameCallback(appendChunk);
+        if (loadPos < loadText.length())
+            edit.getText().append(loadText.subSequence(loadPos, loadText.length()));
+        endLoad();
+    }
+
+    // Reports the load to Unity as one replacement of the text it started from.
+    private void endLoad() {
+        loadText = null;
+        Editable s = edit.getText();
+        if (textChangeMode.equals(TEXT_CHANGE_DELTA))
+            sendTextDelta(0, loadPreviousLength, s.toString());
+        onTextEdited(s);
+    }
+
     private String GetText() {
         return edit.getText().toString();
     }
 
     private boolean isFocused() {
-        return edit.isFocused();
+        return edit != null && edit.isFocused();
     }
 
     private void SetFocus(boolean isFocus) {
         if (isFocus) {
+            if (edit == null)
+                createView();
             edit.requestFocus();
-        } else {
+        } else if (edit != null) {
             edit.clearFocus();
         }
         this.showKeyboard(isFocus);
     }
 
-    private void SetTextSize(JSONObject jsonRect) {
-        try {
-            double fontSize = jsonRect.getDouble("fontSize");
-            edit.setTextSize(TypedValue.COMPLEX_UNIT_PX, (float) fontSize);
-        } catch (JSONException e) {
-        }
+    private void SetTextSize(float fontSize) {
+        this.fontSize = fontSize;
+        if (edit != null)
+            edit.setTextSize(TypedValue.COMPLEX_UNIT_PX, fontSize);
     }
 
-    private void SetRect(JSONObject jsonRect) {
-        try {
-            double x = jsonRect.getDouble("x") * layout.getWidth();
-            double y = jsonRect.getDouble("y") * layout.getHeight();
-            double width = jsonRect.getDouble("width") * layout.getWidth();
-            double height = jsonRect.getDouble("height") * layout.getHeight();
-
-            RelativeLayout.LayoutParams lp = new RelativeLayout.LayoutParams((int) width, (int) height);
-            lp.setMargins((int) x, (int) y, 0, 0);
-            edit.setLayoutParams(lp);
-        } catch (JSONException e) {
+    private void SetRect(double rx, double ry, double rwidth, double rheight) {
+        relX = rx;
+        relY = ry;
+        relWidth = rwidth;
+        relHeight = rheight;
+        if (edit != null)
+            applyRect();
+    }
+
+    private void applyRect() {
+        double x = relX * layout.getWidth();
+        double y = relY * layout.getHeight();
+        double width = relWidth * layout.getWidth();
+        double height = relHeight * layout.getHeight();
+
+        int px = (int) x;
+        int py = (int) y;
+        int pwidth = (int) width;
+        int pheight = (int) height;
+        if (px == rectX && py == rectY && pwidth == rectWidth && pheight == rectHeight) {
+            mirror.rectUpdatesSkipped.incrementAndGet();
+            return;
+        }
+        rectX = px;
+        rectY = py;
+        rectWidth = pwidth;
+        rectHeight = pheight;
+        mirror.rectUpdatesApplied.incrementAndGet();
+
+        RelativeLayout.LayoutParams lp;
+        if (edit.getLayoutParams() instanceof RelativeLayout.LayoutParams) {
+            lp = (RelativeLayout.LayoutParams) edit.getLayoutParams();
+            lp.width = pwidth;
+            lp.height = pheight;
+        } else {
+            lp = new RelativeLayout.LayoutParams(pwidth, pheight);
         }
+        lp.setMargins(px, py, 0, 0);
+        edit.setLayoutParams(lp);
     }
 
     private void SetVisible(boolean bVisible) {
+        visible = bVisible;
+        if (edit == null) {
+            if (bVisible)
+                createView();
+            return;
+        }
         edit.setEnabled(bVisible);
         edit.setVisibility(bVisible ? View.VISIBLE : View.INVISIBLE);
+        layout.removeCallbacks(updateView);
+        if (!bVisible && host.lazyViews)
+            layout.postDelayed(updateView, host.lazyViewReleaseDelay);
+    }
+
+    // Maps the key names sent with AndroidKeyDown to key codes, -1 for names that are not forwarded.
+    // Soft keyboard keys are caught by KeyInterceptor and never reach Unity, so only keys of a hardware keyboard,
+    // which still go through Unity's activity, are forwarded this way.
+    static int keyCodeOf(String strKey) {
+        if (strKey.length() == 1 && strKey.charAt(0) >= '0' && strKey.charAt(0) <= '9')
+            return KeyEvent.KEYCODE_0 + (strKey.charAt(0) - '0');
+        if (strKey.equalsIgnoreCase("backspace"))
+            return KeyEvent.KEYCODE_DEL;
+        if (strKey.equalsIgnoreCase("enter"))
+            return KeyEvent.KEYCODE_ENTER;
+        return -1;
     }
 
-    private void OnForceAndroidKeyDown(String strKey) {
+    private void OnForceAndroidKeyDown(int keyCode) {
         if (!this.isFocused()) return;
 
-        // Need to force fire key event of backspace and enter because Unity eats them and never return back to plugin.
-        // Same happens on number keys on top of the keyboard with Google Keyboard on password fields.
-        int keyCode = -1;
-        if (strKey.equalsIgnoreCase("backspace")) {
-            keyCode = KeyEvent.KEYCODE_DEL;
-        } else if (strKey.equalsIgnoreCase("enter")) {
-            keyCode = KeyEvent.KEYCODE_ENTER;
-        } else if (strKey.equals("0")) {
-            keyCode = KeyEvent.KEYCODE_0;
-        } else if (strKey.equals("1")) {
-            keyCode = KeyEvent.KEYCODE_1;
-        } else if (strKey.equals("2")) {
-            keyCode = KeyEvent.KEYCODE_2;
-        } else if (strKey.equals("3")) {
-            keyCode = KeyEvent.KEYCODE_3;
-        } else if (strKey.equals("4")) {
-            keyCode = KeyEvent.KEYCODE_4;
-        } else if (strKey.equals("5")) {
-            keyCode = KeyEvent.KEYCODE_5;
-        } else if (strKey.equals("6")) {
-            keyCode = KeyEvent.KEYCODE_6;
-        } else if (strKey.equals("7")) {
-            keyCode = KeyEvent.KEYCODE_7;
-        } else if (strKey.equals("8")) {
-            keyCode = KeyEvent.KEYCODE_8;
-        } else if (strKey.equals("9")) {
-            keyCode = KeyEvent.KEYCODE_9;
-        }
-        if (keyCode > 0) {
-            KeyEvent ke = new KeyEvent(KeyEvent.ACTION_DOWN, keyCode);
-            Log.i(NativeEditPlugin.LOG_TAG, String.format("Force fire KEY EVENT %d", keyCode));
-            edit.onKeyDown(keyCode, ke);
-        }
+        if (isInterceptedKey(keyCode))
+            edit.onKeyDown(keyCode, new KeyEvent(KeyEvent.ACTION_DOWN, keyCode));
     }
 }
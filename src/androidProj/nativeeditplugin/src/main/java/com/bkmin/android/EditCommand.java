@@ -0,0 +1,275 @@
+package com.bkmin.android;
+
+import android.content.Context;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+// One message from Unity, decoded on the calling thread into the values the views take, so the UI thread only
+// applies it. Immutable, only the fields of its op are set. op is 0 for a message that could not be decoded.
+// RegisterStyle is applied while decoding, its command carries nothing for the UI thread.
+final class EditCommand {
+    final int senderId;
+    final byte op;
+    final EditBox.CreateSpec create;
+    final String text;
+    // SetRect, relative to the plugin layout. Its size is only known on the UI thread.
+    final double x, y, width, height;
+    final float fontSize;
+    // SetFocus and SetVisible.
+    final boolean flag;
+    final int keyCode;
+    // ReplaceText range. SetTextChunked puts its chunk size in end.
+    final int start, end;
+
+    // Binary messages are decoded on whichever thread Unity calls from, so each thread reuses its own Readers.
+    // The second one is for the frames of a bulk message.
+    private static final ThreadLocal<MsgCodec.Reader[]> readers = new ThreadLocal<MsgCodec.Reader[]>() {
+        @Override
+        protected MsgCodec.Reader[] initialValue() {
+            return new MsgCodec.Reader[]{new MsgCodec.Reader(), new MsgCodec.Reader()};
+        }
+    };
+
+    private EditCommand(int senderId, byte op, EditBox.CreateSpec create, String text,
+                        double x, double y, double width, double height,
+                        float fontSize, boolean flag, int keyCode, int start, int end) {
+        this.senderId = senderId;
+        this.op = op;
+        this.create = create;
+        this.text = text;
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.fontSize = fontSize;
+        this.flag = flag;
+        this.keyCode = keyCode;
+        this.start = start;
+        this.end = end;
+    }
+
+    private static EditCommand simple(int senderId, byte op) {
+        return new EditCommand(senderId, op, null, null, 0, 0, 0, 0, 0, false, 0, 0, 0);
+    }
+
+    private static EditCommand create(int senderId, EditBox.CreateSpec create) {
+        return new EditCommand(senderId, MsgCodec.OP_CREATE, create, null, 0, 0, 0, 0, 0, false, 0, 0, 0);
+    }
+
+    private static EditCommand setText(int senderId, String text) {
+        return new EditCommand(senderId, MsgCodec.OP_SET_TEXT, null, text, 0, 0, 0, 0, 0, false, 0, 0, 0);
+    }
+
+    private static EditCommand replaceText(int senderId, int start, int end, String text) {
+        return new EditCommand(senderId, MsgCodec.OP_REPLACE_TEXT, null, text, 0, 0, 0, 0, 0, false, 0, start, end);
+    }
+
+    private static EditCommand setTextChunked(int senderId, String text, int chunkSize) {
+        return new EditCommand(senderId, MsgCodec.OP_SET_TEXT_CHUNKED, null, text, 0, 0, 0, 0, 0, false, 0, 0, chunkSize);
+    }
+
+    private static EditCommand setRect(int senderId, double x, double y, double width, double height) {
+        return new EditCommand(senderId, MsgCodec.OP_SET_RECT, null, null, x, y, width, height, 0, false, 0, 0, 0);
+    }
+
+    private static EditCommand setTextSize(int senderId, float fontSize) {
+        return new EditCommand(senderId, MsgCodec.OP_SET_TEXTSIZE, null, null, 0, 0, 0, 0, fontSize, false, 0, 0, 0);
+    }
+
+    private static EditCommand withFlag(int senderId, byte op, boolean flag) {
+        return new EditCommand(senderId, op, null, null, 0, 0, 0, 0, 0, flag, 0, 0, 0);
+    }
+
+    private static EditCommand keyDown(int senderId, int keyCode) {
+        return new EditCommand(senderId, MsgCodec.OP_ANDROID_KEY_DOWN, null, null, 0, 0, 0, 0, 0, false, keyCode, 0, 0);
+    }
+
+    private static Context context() {
+        return NativeEditPlugin.getApplicationContext();
+    }
+
+    private static EditCommand createStyled(int senderId, JSONObject jsonMsg) throws JSONException {
+        int styleId = jsonMsg.getInt("styleId");
+        EditStyles.Style style = EditStyles.get(styleId);
+        if (style == null)
+            return styleNotFound(senderId, styleId);
+        EditBox.CreateParams params = style.params.copy();
+        params.readJsonRect(jsonMsg);
+        int overrides = params.readJsonOverrides(jsonMsg);
+        return createFromStyle(senderId, style, params, overrides);
+    }
+
+    private static EditCommand createFromStyle(int senderId, EditStyles.Style style, EditBox.CreateParams params,
+                                               int overrides) {
+        boolean resolve = (overrides & MsgCodec.OVERRIDES_RESOLVED) != 0;
+        return create(senderId, new EditBox.CreateSpec(params, resolve ? null : style.spec, context()));
+    }
+
+    private static EditCommand styleNotFound(int senderId, int styleId) {
+        Log.e(NativeEditPlugin.LOG_TAG, "Style not found, id : " + styleId);
+        return simple(senderId, (byte) 0);
+    }
+
+    static EditCommand fromJson(int senderId, String strJson) {
+        try {
+            return fromJson(senderId, new JSONObject(strJson));
+        } catch (JSONException e) {
+        }
+        return simple(senderId, (byte) 0);
+    }
+
+    // A JSON array of messages, each carrying its own senderId. Returns null if it is not an array.
+    static EditCommand[] fromJsonBulk(String strJson) {
+        try {
+            JSONArray jsonMsgs = new JSONArray(strJson);
+            EditCommand[] cmds = new EditCommand[jsonMsgs.length()];
+            for (int i = 0; i < cmds.length; i++) {
+                JSONObject jsonMsg = jsonMsgs.optJSONObject(i);
+                cmds[i] = jsonMsg != null ? fromJson(jsonMsg.optInt("senderId", -1), jsonMsg) : simple(-1, (byte) 0);
+            }
+            return cmds;
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+
+    private static EditCommand fromJson(int senderId, JSONObject jsonMsg) {
+        try {
+            byte op = MsgCodec.opOf(jsonMsg.getString("msg"));
+            switch (op) {
+                case MsgCodec.OP_CREATE:
+                    if (jsonMsg.has("styleId")) {
+                        return createStyled(senderId, jsonMsg);
+                    } else {
+                        EditBox.CreateParams params = new EditBox.CreateParams();
+                        params.readJson(jsonMsg);
+                        return create(senderId, new EditBox.CreateSpec(params, null, context()));
+                    }
+                case MsgCodec.OP_CREATE_STYLED:
+                    return createStyled(senderId, jsonMsg);
+                case MsgCodec.OP_REGISTER_STYLE:
+                    EditBox.CreateParams style = new EditBox.CreateParams();
+                    style.readJsonStyle(jsonMsg);
+                    EditStyles.register(jsonMsg.getInt("styleId"), style, context());
+                    return simple(senderId, op);
+                case MsgCodec.OP_REMOVE:
+                    return simple(senderId, op);
+                case MsgCodec.OP_SET_TEXT:
+                    return setText(senderId, jsonMsg.getString("text"));
+                case MsgCodec.OP_REPLACE_TEXT:
+                    return replaceText(senderId, jsonMsg.getInt("start"), jsonMsg.getInt("end"),
+                            jsonMsg.getString("text"));
+                case MsgCodec.OP_SET_TEXT_CHUNKED:
+                    return setTextChunked(senderId, jsonMsg.getString("text"), jsonMsg.getInt("chunkSize"));
+                case MsgCodec.OP_SET_RECT:
+                    return setRect(senderId, jsonMsg.getDouble("x"), jsonMsg.getDouble("y"),
+                            jsonMsg.getDouble("width"), jsonMsg.getDouble("height"));
+                case MsgCodec.OP_SET_TEXTSIZE:
+                    return setTextSize(senderId, (float) jsonMsg.getDouble("fontSize"));
+                case MsgCodec.OP_SET_FOCUS:
+                    return withFlag(senderId, op, jsonMsg.getBoolean("isFocus"));
+                case MsgCodec.OP_SET_VISIBLE:
+                    return withFlag(senderId, op, jsonMsg.getBoolean("isVisible"));
+                case MsgCodec.OP_ANDROID_KEY_DOWN:
+                    return keyDown(senderId, EditBox.keyCodeOf(jsonMsg.getString("key")));
+            }
+        } catch (JSONException e) {
+        }
+        return simple(senderId, (byte) 0);
+    }
+
+    static EditCommand fromBinary(int senderId, byte[] msg) {
+        return fromBinary(senderId, readers.get()[0].reset(msg));
+    }
+
+    // Messages framed as described at MsgCodec.encodeBulk. Returns null if the framing is broken.
+    static EditCommand[] fromBinaryBulk(byte[] msgs) {
+        try {
+            MsgCodec.Reader[] threadReaders = readers.get();
+            MsgCodec.Reader frames = threadReaders[1].reset(msgs);
+            MsgCodec.Reader reader = threadReaders[0];
+            int count = frames.readInt();
+            // Every frame takes at least its senderId and length, so a bad count can't allocate a huge array.
+            if (count < 0 || count > frames.remaining() / 8)
+                throw new IllegalArgumentException("Bad message count " + count);
+            EditCommand[] cmds = new EditCommand[count];
+            for (int i = 0; i < cmds.length; i++) {
+                int senderId = frames.readInt();
+                int length = frames.readInt();
+                cmds[i] = fromBinary(senderId, frames.slice(reader, length));
+            }
+            return cmds;
+        } catch (IllegalArgumentException e) {
+            Log.i(NativeEditPlugin.LOG_TAG, String.format("Process binary bulk msg error %s", e.getMessage()));
+            return null;
+        }
+    }
+
+    private static EditCommand fromBinary(int senderId, MsgCodec.Reader reader) {
+        try {
+            byte op = reader.readByte();
+            switch (op) {
+                case MsgCodec.OP_CREATE: {
+                    EditBox.CreateParams params = new EditBox.CreateParams();
+                    MsgCodec.decodeCreate(reader, params);
+                    return create(senderId, new EditBox.CreateSpec(params, null, context()));
+                }
+                case MsgCodec.OP_REGISTER_STYLE: {
+                    int styleId = reader.readInt();
+                    EditBox.CreateParams params = new EditBox.CreateParams();
+                    MsgCodec.decodeCreate(reader, params);
+                    EditStyles.register(styleId, params, context());
+                    return simple(senderId, op);
+                }
+                case MsgCodec.OP_CREATE_STYLED: {
+                    int styleId = reader.readInt();
+                    EditStyles.Style style = EditStyles.get(styleId);
+                    if (style == null)
+                        return styleNotFound(senderId, styleId);
+                    EditBox.CreateParams params = style.params.copy();
+                    params.x = reader.readFloat();
+                    params.y = reader.readFloat();
+                    params.width = reader.readFloat();
+                    params.height = reader.readFloat();
+                    int overrides = MsgCodec.decodeOverrides(reader, params);
+                    return createFromStyle(senderId, style, params, overrides);
+                }
+                case MsgCodec.OP_REMOVE:
+                    return simple(senderId, op);
+                case MsgCodec.OP_SET_TEXT:
+                    return setText(senderId, reader.readString());
+                case MsgCodec.OP_REPLACE_TEXT: {
+                    int start = reader.readInt();
+                    int end = reader.readInt();
+                    return replaceText(senderId, start, end, reader.readString());
+                }
+                case MsgCodec.OP_SET_TEXT_CHUNKED: {
+                    int chunkSize = reader.readInt();
+                    return setTextChunked(senderId, reader.readString(), chunkSize);
+                }
+                case MsgCodec.OP_SET_RECT:
+                    float x = reader.readFloat();
+                    float y = reader.readFloat();
+                    float width = reader.readFloat();
+                    float height = reader.readFloat();
+                    return setRect(senderId, x, y, width, height);
+                case MsgCodec.OP_SET_TEXTSIZE:
+                    return setTextSize(senderId, reader.readFloat());
+                case MsgCodec.OP_SET_FOCUS:
+                case MsgCodec.OP_SET_VISIBLE:
+                    return withFlag(senderId, op, reader.readBool());
+                case MsgCodec.OP_ANDROID_KEY_DOWN:
+                    return keyDown(senderId, reader.readInt());
+                default:
+                    Log.e(NativeEditPlugin.LOG_TAG, "Unknown binary msg op : " + op);
+                    break;
+            }
+        } catch (IllegalArgumentException e) {
+            Log.i(NativeEditPlugin.LOG_TAG, String.format("Process binary msg error %s", e.getMessage()));
+        }
+        return simple(senderId, (byte) 0);
+    }
+}
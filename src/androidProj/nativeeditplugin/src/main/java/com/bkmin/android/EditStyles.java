@@ -0,0 +1,37 @@
+package com.bkmin.android;
+
+import android.content.Context;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+// Styles registered with RegisterStyle. A CreateEdit that names a styleId starts from the style's params and
+// reuses its resolved input type, IME options, gravity and typeface unless it overrides what they depend on.
+// Registered and read on the Unity thread while messages are decoded.
+final class EditStyles {
+    static final class Style {
+        final EditBox.CreateParams params;
+        final EditBox.CreateSpec spec;
+
+        Style(EditBox.CreateParams params, EditBox.CreateSpec spec) {
+            this.params = params;
+            this.spec = spec;
+        }
+    }
+
+    private static final ConcurrentHashMap<Integer, Style> styles = new ConcurrentHashMap<>();
+
+    private EditStyles() {
+    }
+
+    static void register(int styleId, EditBox.CreateParams params, Context context) {
+        styles.put(styleId, new Style(params, new EditBox.CreateSpec(params, null, context)));
+    }
+
+    static Style get(int styleId) {
+        return styles.get(styleId);
+    }
+
+    static void clear() {
+        styles.clear();
+    }
+}
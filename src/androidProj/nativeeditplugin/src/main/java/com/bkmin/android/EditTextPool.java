@@ -0,0 +1,63 @@
+package com.bkmin.android;
+
+import android.content.Context;
+
+import java.util.ArrayDeque;
+
+// Bounded pool of detached EditTextLifeCycle views, so CreateEdit/RemoveEdit churn does not
+// construct a new EditText every time. Only used on the UI thread.
+final class EditTextPool {
+    private static final int DEFAULT_CAPACITY = 8;
+
+    private static final ArrayDeque<EditBox.EditTextLifeCycle> pool = new ArrayDeque<>();
+    private static int capacity = DEFAULT_CAPACITY;
+
+    private static volatile long hits = 0;
+    private static volatile long misses = 0;
+    private static volatile long released = 0;
+    private static volatile long discarded = 0;
+
+    private EditTextPool() {
+    }
+
+    static void setCapacity(int newCapacity) {
+        capacity = Math.max(0, newCapacity);
+        while (pool.size() > capacity)
+            pool.pollLast();
+    }
+
+    // Fills the pool up to its capacity.
+    static void prewarm(Context context) {
+        while (pool.size() < capacity)
+            pool.offerFirst(new EditBox.EditTextLifeCycle(context));
+    }
+
+    static EditBox.EditTextLifeCycle acquire(Context context) {
+        EditBox.EditTextLifeCycle edit = pool.pollFirst();
+        if (edit != null) {
+            hits++;
+            return edit;
+        }
+        misses++;
+        return new EditBox.EditTextLifeCycle(context);
+    }
+
+    static void release(EditBox.EditTextLifeCycle edit) {
+        if (edit.getParent() != null || pool.size() >= capacity) {
+            discarded++;
+            return;
+        }
+        edit.resetForReuse();
+        pool.offerFirst(edit);
+        released++;
+    }
+
+    static void clear() {
+        pool.clear();
+    }
+
+    static String getStats() {
+        return String.format("{\"hits\":%d,\"misses\":%d,\"released\":%d,\"discarded\":%d,\"pooled\":%d,\"capacity\":%d}",
+                hits, misses, released, discarded, pool.size(), capacity);
+    }
+}
@@ -0,0 +1,52 @@
+package com.bkmin.android;
+
+import android.view.Choreographer;
+
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+
+// Collects events for Unity and sends them as one JSON array per vsync, in the order they were raised.
+// Only used on the UI thread.
+final class EventBatch implements Choreographer.FrameCallback {
+    private final ArrayList<JSONObject> events = new ArrayList<>();
+    private final StringBuilder builder = new StringBuilder(256);
+    private boolean frameCallbackPosted = false;
+
+    void add(JSONObject event) {
+        events.add(event);
+        if (!frameCallbackPosted) {
+            Choreographer.getInstance().postFrameCallback(this);
+            frameCallbackPosted = true;
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        frameCallbackPosted = false;
+        flush();
+    }
+
+    void flush() {
+        if (events.isEmpty())
+            return;
+        builder.setLength(0);
+        builder.append('[');
+        for (int i = 0; i < events.size(); i++) {
+            if (i > 0)
+                builder.append(',');
+            builder.append(events.get(i).toString());
+        }
+        builder.append(']');
+        events.clear();
+        NativeEditPlugin.SendUnityBatch(builder.toString());
+    }
+
+    void cancel() {
+        if (frameCallbackPosted) {
+            Choreographer.getInstance().removeFrameCallback(this);
+            frameCallbackPosted = false;
+        }
+        events.clear();
+    }
+}
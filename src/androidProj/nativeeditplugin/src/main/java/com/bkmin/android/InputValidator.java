@@ -0,0 +1,238 @@
+package com.bkmin.android;
+
+import android.text.InputFilter;
+import android.text.SpannableString;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.TextUtils;
+import android.util.Log;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+// Enforces the content type of a box, and optionally a registered regex rule, before an edit is committed, so Unity
+// only ever sees valid text. Characters follow the rules of Unity's InputField validation: rejected characters are
+// dropped and Name fixes the case of letters. A rule is checked on the whole text and accepts text that can still
+// become a match, so partial input is not blocked. Deletions are always accepted.
+// Rules are compiled once when registered and shared by every box using them. Filtering runs on the UI thread.
+final class InputValidator implements InputFilter {
+    private static final int NONE = 0;
+    private static final int INTEGER = 1;
+    private static final int DECIMAL = 2;
+    private static final int ALPHANUMERIC = 3;
+    private static final int NAME = 4;
+    private static final int EMAIL = 5;
+
+    private static final String EMAIL_SPECIAL_CHARACTERS = "!#$%&'*+-/=?^_`{|}~";
+
+    private static final ConcurrentHashMap<Integer, Pattern> rules = new ConcurrentHashMap<>();
+
+    private final int charValidation;
+    private final Pattern rule;
+    // Reused for every check of this validator, only touched on the UI thread.
+    private Matcher matcher;
+    private final StringBuilder result = new StringBuilder();
+    // Offsets in the source range of the characters the last check dropped.
+    private int[] dropped = new int[16];
+    private int droppedCount;
+
+    private InputValidator(int charValidation, Pattern rule) {
+        this.charValidation = charValidation;
+        this.rule = rule;
+    }
+
+    // Validator for a content type and rule id (0 for none), null if neither restricts the input.
+    static InputValidator create(String contentType, int ruleId) {
+        Pattern rule = null;
+        if (ruleId != 0) {
+            rule = rules.get(ruleId);
+            if (rule == null)
+                Log.e(NativeEditPlugin.LOG_TAG, "Validation rule not found, id : " + ruleId);
+        }
+        int charValidation = charValidationOf(contentType);
+        return charValidation != NONE || rule != null ? new InputValidator(charValidation, rule) : null;
+    }
+
+    private static int charValidationOf(String contentType) {
+        switch (contentType) {
+            case "IntegerNumber":
+            case "Pin":
+                return INTEGER;
+            case "DecimalNumber":
+                return DECIMAL;
+            case "Alphanumeric":
+                return ALPHANUMERIC;
+            case "Name":
+                return NAME;
+            case "EmailAddress":
+                return EMAIL;
+            default:
+                return NONE;
+        }
+    }
+
+    // Compiles and caches a rule. Returns the syntax error, or null if the rule was registered.
+    static String register(int ruleId, String regex) {
+        try {
+            rules.put(ruleId, Pattern.compile(regex));
+            return null;
+        } catch (PatternSyntaxException e) {
+            return e.getDescription();
+        }
+    }
+
+    static void clear() {
+        rules.clear();
+    }
+
+    @Override
+    public CharSequence filter(CharSequence source, int start, int end, Spanned dest, int dstart, int dend) {
+        return validate(source, start, end, dest, dstart, dend);
+    }
+
+    // Returns null when source is accepted as is, like InputFilter.filter.
+    private CharSequence validate(CharSequence source, int start, int end, CharSequence dest, int dstart, int dend) {
+        if (start == end)
+            return null;
+
+        CharSequence accepted = null;
+        if (charValidation != NONE) {
+            result.setLength(0);
+            droppedCount = 0;
+            boolean changed = false;
+            for (int i = start; i < end; i++) {
+                char ch = source.charAt(i);
+                char valid = validateChar(dest, dstart, dend, ch);
+                if (valid != 0)
+                    result.append(valid);
+                else
+                    drop(i - start);
+                changed |= valid != ch;
+            }
+            if (changed)
+                accepted = source instanceof Spanned ? withSpans((Spanned) source, start, end) : result.toString();
+        }
+
+        if (rule != null) {
+            CharSequence inserted = accepted != null ? accepted : source.subSequence(start, end);
+            String text = new StringBuilder(dest.length() + inserted.length())
+                    .append(dest, 0, dstart).append(inserted).append(dest, dend, dest.length()).toString();
+            if (!canMatch(text))
+                return dest.subSequence(dstart, dend);
+        }
+        return accepted;
+    }
+
+    private void drop(int offset) {
+        if (droppedCount == dropped.length)
+            dropped = Arrays.copyOf(dropped, dropped.length * 2);
+        dropped[droppedCount++] = offset;
+    }
+
+    // result with the spans of source, so the IME keeps its composing region over what it typed.
+    private CharSequence withSpans(Spanned source, int start, int end) {
+        if (droppedCount == 0) {
+            // Only the case of letters changed, so the spans keep their offsets, as with InputFilter.AllCaps.
+            SpannableString spanned = new SpannableString(result);
+            TextUtils.copySpansFrom(source, start, end, null, spanned, 0);
+            return spanned;
+        }
+        // Deleting from a builder moves the spans after the dropped characters along, as DigitsKeyListener does.
+        SpannableStringBuilder spanned = new SpannableStringBuilder(source, start, end);
+        for (int i = droppedCount - 1; i >= 0; i--)
+            spanned.delete(dropped[i], dropped[i] + 1);
+        for (int i = 0; i < result.length(); i++) {
+            if (spanned.charAt(i) != result.charAt(i))
+                spanned.replace(i, i + 1, String.valueOf(result.charAt(i)));
+        }
+        return spanned;
+    }
+
+    private boolean canMatch(String text) {
+        if (matcher == null)
+            matcher = rule.matcher(text);
+        else
+            matcher.reset(text);
+        // hitEnd means more input could still complete the match.
+        return matcher.matches() || matcher.hitEnd();
+    }
+
+    // Validates ch as if inserted after what result holds so far. Returns the character to insert, 0 to drop it.
+    private char validateChar(CharSequence dest, int dstart, int dend, char ch) {
+        int pos = dstart + result.length();
+        char prev = pos == 0 ? 0 : result.length() > 0 ? result.charAt(result.length() - 1) : dest.charAt(dstart - 1);
+        char next = dend < dest.length() ? dest.charAt(dend) : 0;
+
+        switch (charValidation) {
+            case INTEGER:
+            case DECIMAL:
+                // Nothing goes in front of a minus sign.
+                if (pos == 0 && next == '-')
+                    return 0;
+                if (ch >= '0' && ch <= '9')
+                    return ch;
+                if (ch == '-' && pos == 0)
+                    return ch;
+                if (ch == '.' && charValidation == DECIMAL && !contains(dest, dstart, dend, '.'))
+                    return ch;
+                return 0;
+            case ALPHANUMERIC:
+                return isAsciiLetterOrDigit(ch) ? ch : 0;
+            case NAME:
+                if (Character.isLetter(ch)) {
+                    if (pos == 0 || prev == ' ')
+                        return Character.toUpperCase(ch);
+                    if (prev != '\'')
+                        return Character.toLowerCase(ch);
+                    return ch;
+                }
+                if (ch == '\'') {
+                    if (prev != ' ' && prev != '\'' && next != '\'' && !contains(dest, dstart, dend, '\''))
+                        return ch;
+                    return 0;
+                }
+                if (ch == ' ') {
+                    if (pos != 0 && prev != ' ' && prev != '\'' && next != ' ' && next != '\'')
+                        return ch;
+                    return 0;
+                }
+                return 0;
+            case EMAIL:
+                if (isAsciiLetterOrDigit(ch))
+                    return ch;
+                if (ch == '@')
+                    return contains(dest, dstart, dend, '@') ? 0 : ch;
+                if (EMAIL_SPECIAL_CHARACTERS.indexOf(ch) >= 0)
+                    return ch;
+                if (ch == '.')
+                    return prev != '.' && next != '.' ? ch : 0;
+                return 0;
+            default:
+                return ch;
+        }
+    }
+
+    // Whether the text around the replaced range or the characters accepted so far contain c.
+    private boolean contains(CharSequence dest, int dstart, int dend, char c) {
+        for (int i = 0; i < result.length(); i++) {
+            if (result.charAt(i) == c)
+                return true;
+        }
+        for (int i = 0; i < dstart; i++) {
+            if (dest.charAt(i) == c)
+                return true;
+        }
+        for (int i = dend; i < dest.length(); i++) {
+            if (dest.charAt(i) == c)
+                return true;
+        }
+        return false;
+    }
+
+    private static boolean isAsciiLetterOrDigit(char ch) {
+        return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || (ch >= '0' && ch <= '9');
+    }
+}
@@ -0,0 +1,133 @@
+package com.bkmin.android;
+
+import android.graphics.Rect;
+import android.os.Build;
+import android.view.View;
+import android.view.ViewTreeObserver;
+import android.view.WindowInsets;
+
+// Tracks the soft keyboard height of the plugin's root view and reports it only when it changes.
+// On API 21+ the height is taken from window insets when the window is resized for the keyboard. Windows that pan
+// or don't adjust never see the keyboard in their insets, so the visible display frame is measured on global layout
+// instead, and only while a box is focused or the keyboard is up, as that call goes through the window manager.
+// Heights are cached per orientation and the detection threshold follows the current window size.
+// Insets are read from the plugin's own layout: a view takes a single insets listener, so setting one on the
+// content view would replace the one the app or Unity may have set there.
+// One per PluginHost, only used on the UI thread.
+final class KeyboardMetrics {
+    interface Listener {
+        void onKeyboardHeightChanged(int height);
+    }
+
+    private static final int PORTRAIT = 0;
+    private static final int LANDSCAPE = 1;
+
+    private View rootView = null;
+    private View insetsView = null;
+    private Listener listener = null;
+    private ViewTreeObserver.OnGlobalLayoutListener layoutListener = null;
+    private boolean tracking = false;
+    private boolean insetsShowKeyboard = false;
+    private int height = 0;
+    private final int[] cachedHeight = new int[2];
+    private final int[] bottomWithoutKeyboard = new int[2];
+    private final Rect rect = new Rect();
+
+    // insetsView is a view of the plugin under root, whose insets listener nothing else sets.
+    void attach(View root, View insets, Listener l) {
+        detach();
+        rootView = root;
+        insetsView = insets;
+        listener = l;
+        layoutListener = new ViewTreeObserver.OnGlobalLayoutListener() {
+            @Override
+            public void onGlobalLayout() {
+                measureVisibleFrame();
+            }
+        };
+        root.getViewTreeObserver().addOnGlobalLayoutListener(layoutListener);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            insets.setOnApplyWindowInsetsListener(new View.OnApplyWindowInsetsListener() {
+                @Override
+                public WindowInsets onApplyWindowInsets(View v, WindowInsets insets) {
+                    onInsetsChanged(insets.getSystemWindowInsetBottom());
+                    return v.onApplyWindowInsets(insets);
+                }
+            });
+        }
+    }
+
+    void detach() {
+        if (rootView != null) {
+            rootView.getViewTreeObserver().removeOnGlobalLayoutListener(layoutListener);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP)
+                insetsView.setOnApplyWindowInsetsListener(null);
+        }
+        rootView = null;
+        insetsView = null;
+        listener = null;
+        layoutListener = null;
+        tracking = false;
+        insetsShowKeyboard = false;
+        height = 0;
+        for (int i = 0; i < 2; i++) {
+            cachedHeight[i] = 0;
+            bottomWithoutKeyboard[i] = 0;
+        }
+    }
+
+    // Enables visible frame measurement while one of the boxes is focused.
+    void setTracking(boolean enable) {
+        tracking = enable;
+    }
+
+    // Current height, or the last height seen in this orientation while the keyboard is hidden.
+    int getExpectedHeight() {
+        return height != 0 ? height : cachedHeight[orientation()];
+    }
+
+    private void onInsetsChanged(int insetBottom) {
+        if (insetBottom > threshold()) {
+            insetsShowKeyboard = true;
+            update(insetBottom);
+        } else if (insetsShowKeyboard) {
+            update(0);
+        }
+    }
+
+    private void measureVisibleFrame() {
+        if (insetsShowKeyboard || (!tracking && height == 0))
+            return;
+
+        int o = orientation();
+        rect.setEmpty();
+        rootView.getWindowVisibleDisplayFrame(rect);
+        int delta = bottomWithoutKeyboard[o] - rect.bottom;
+        if (delta > threshold()) {
+            update(delta);
+        } else {
+            bottomWithoutKeyboard[o] = rect.bottom;
+            update(0);
+        }
+    }
+
+    private void update(int newHeight) {
+        if (newHeight > 0)
+            cachedHeight[orientation()] = newHeight;
+        if (newHeight == height)
+            return;
+        height = newHeight;
+        if (listener != null)
+            listener.onKeyboardHeightChanged(newHeight);
+    }
+
+    // The decor view keeps the window size while the content view is resized for the keyboard.
+    private int orientation() {
+        View window = rootView.getRootView();
+        return window.getWidth() > window.getHeight() ? LANDSCAPE : PORTRAIT;
+    }
+
+    private int threshold() {
+        return rootView.getRootView().getHeight() / 4;
+    }
+}
@@ -0,0 +1,446 @@
+package com.bkmin.android;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+// Compact binary form of the messages Unity sends to the plugin.
+// Every message starts with an opcode byte followed by fixed-layout little-endian fields
+// (the byte order of C#'s BinaryWriter). Strings are an int32 byte length followed by UTF-8 bytes.
+//
+//   OP_CREATE         x, y, width, height (float), characterLimit (int),
+//                     textColor, backColor, placeHolderColor (int ARGB), fontSize (float),
+//                     multiline (byte), contentType, keyboardType, inputType, returnKeyType, align (byte index),
+//                     placeHolder, font (string),
+//                     optional: textChangeMode (byte index), textChangeInterval (int ms),
+//                     optional: characterLimitUnit (byte index),
+//                     optional: validationRule (int, 0 for none)
+//   OP_REMOVE         -
+//   OP_SET_TEXT       text (string)
+//   OP_SET_RECT       x, y, width, height (float)
+//   OP_SET_TEXTSIZE   fontSize (float)
+//   OP_SET_FOCUS      isFocus (byte)
+//   OP_SET_VISIBLE    isVisible (byte)
+//   OP_ANDROID_KEY_DOWN  keyCode (int, android.view.KeyEvent code)
+//   OP_REGISTER_STYLE styleId (int), then the OP_CREATE fields (the rect is ignored)
+//   OP_CREATE_STYLED  styleId (int), x, y, width, height (float), overrides (int, OVERRIDE_* bits),
+//                     then the overridden OP_CREATE fields in their OP_CREATE order
+//   OP_REPLACE_TEXT   start, end (int, UTF-16 offsets), text (string)
+//   OP_SET_TEXT_CHUNKED  chunkSize (int, chars per frame), text (string)
+//
+// Bulk messages are a count (int) followed by that many frames of senderId (int), length (int), message bytes.
+final class MsgCodec {
+    static final byte OP_CREATE = 1;
+    static final byte OP_REMOVE = 2;
+    static final byte OP_SET_TEXT = 3;
+    static final byte OP_SET_RECT = 4;
+    static final byte OP_SET_TEXTSIZE = 5;
+    static final byte OP_SET_FOCUS = 6;
+    static final byte OP_SET_VISIBLE = 7;
+    static final byte OP_ANDROID_KEY_DOWN = 8;
+    static final byte OP_REGISTER_STYLE = 9;
+    static final byte OP_CREATE_STYLED = 10;
+    static final byte OP_REPLACE_TEXT = 11;
+    static final byte OP_SET_TEXT_CHUNKED = 12;
+
+    // The fields an OP_CREATE_STYLED, or a JSON CreateEdit with a styleId, can set over the registered style.
+    // Bits in OP_CREATE field order.
+    static final int OVERRIDE_CHARACTER_LIMIT = 1;
+    static final int OVERRIDE_TEXT_COLOR = 1 << 1;
+    static final int OVERRIDE_BACK_COLOR = 1 << 2;
+    static final int OVERRIDE_PLACEHOLDER_COLOR = 1 << 3;
+    static final int OVERRIDE_FONT_SIZE = 1 << 4;
+    static final int OVERRIDE_MULTILINE = 1 << 5;
+    static final int OVERRIDE_CONTENT_TYPE = 1 << 6;
+    static final int OVERRIDE_KEYBOARD_TYPE = 1 << 7;
+    static final int OVERRIDE_INPUT_TYPE = 1 << 8;
+    static final int OVERRIDE_RETURN_KEY_TYPE = 1 << 9;
+    static final int OVERRIDE_ALIGN = 1 << 10;
+    static final int OVERRIDE_PLACEHOLDER = 1 << 11;
+    static final int OVERRIDE_FONT = 1 << 12;
+    static final int OVERRIDE_TEXT_CHANGE_MODE = 1 << 13;
+    static final int OVERRIDE_TEXT_CHANGE_INTERVAL = 1 << 14;
+    static final int OVERRIDE_CHARACTER_LIMIT_UNIT = 1 << 15;
+    static final int OVERRIDE_VALIDATION_RULE = 1 << 16;
+    // Overrides that change what CreateSpec resolves, so the style's resolved values can't be reused.
+    static final int OVERRIDES_RESOLVED = OVERRIDE_MULTILINE | OVERRIDE_CONTENT_TYPE | OVERRIDE_KEYBOARD_TYPE
+            | OVERRIDE_INPUT_TYPE | OVERRIDE_RETURN_KEY_TYPE | OVERRIDE_ALIGN | OVERRIDE_FONT | OVERRIDE_VALIDATION_RULE;
+
+    // JSON "msg" names indexed by opcode. A JSON CreateEditStyled is a CreateEdit that requires a styleId.
+    static final String[] OP_NAMES = {"", "CreateEdit", "RemoveEdit", "SetText", "SetRect", "SetTextSize",
+            "SetFocus", "SetVisible", "AndroidKeyDown", "RegisterStyle", "CreateEditStyled", "ReplaceText", "SetTextChunked"};
+
+    // Index tables for the enum-like string fields of OP_CREATE. Entries match the names used by the JSON protocol.
+    static final String[] CONTENT_TYPES = {"Standard", "Autocorrected", "IntegerNumber", "DecimalNumber",
+            "Alphanumeric", "Name", "EmailAddress", "Password", "Pin", "Custom"};
+    static final String[] KEYBOARD_TYPES = {"Default", "ASCIICapable", "NumbersAndPunctuation", "URL",
+            "NumberPad", "PhonePad", "NamePhonePad", "EmailAddress"};
+    static final String[] INPUT_TYPES = {"Standard", "AutoCorrect", "Password"};
+    static final String[] RETURN_KEY_TYPES = {"Default", "Next", "Done", "Send", "Go"};
+    static final String[] ALIGNMENTS = {"UpperLeft", "UpperCenter", "UpperRight", "MiddleLeft", "MiddleCenter",
+            "MiddleRight", "LowerLeft", "LowerCenter", "LowerRight"};
+    static final String[] TEXT_CHANGE_MODES = {EditBox.TEXT_CHANGE_FULL, EditBox.TEXT_CHANGE_THROTTLED,
+            EditBox.TEXT_CHANGE_DELTA, EditBox.TEXT_CHANGE_NONE, EditBox.TEXT_CHANGE_SHARED};
+    static final String[] CHARACTER_LIMIT_UNITS = {CharacterLimitFilter.UNIT_CODE_UNITS,
+            CharacterLimitFilter.UNIT_CODE_POINTS};
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private MsgCodec() {
+    }
+
+    static byte opOf(String msgName) {
+        for (int i = 1; i < OP_NAMES.length; i++) {
+            if (OP_NAMES[i].equals(msgName))
+                return (byte) i;
+        }
+        return 0;
+    }
+
+    static String nameAt(String[] table, int index) {
+        return index >= 0 && index < table.length ? table[index] : "";
+    }
+
+    static int indexOf(String[] table, String name) {
+        for (int i = 0; i < table.length; i++) {
+            if (table[i].equals(name))
+                return i;
+        }
+        return 0;
+    }
+
+    // Sequential reader over a message buffer. Meant to be reused, so decoding primitives does not allocate.
+    static final class Reader {
+        private byte[] buf;
+        private int pos;
+        private int end;
+
+        Reader reset(byte[] msg) {
+            return reset(msg, 0, msg.length);
+        }
+
+        Reader reset(byte[] msg, int offset, int length) {
+            buf = msg;
+            pos = offset;
+            end = offset + length;
+            return this;
+        }
+
+        int remaining() {
+            return end - pos;
+        }
+
+        // Points target at the next length bytes and skips them here.
+        Reader slice(Reader target, int length) {
+            if (length < 0)
+                throw new IllegalArgumentException("Negative message length " + length);
+            check(length);
+            target.reset(buf, pos, length);
+            pos += length;
+            return target;
+        }
+
+        byte readByte() {
+            check(1);
+            return buf[pos++];
+        }
+
+        boolean readBool() {
+            return readByte() != 0;
+        }
+
+        int readInt() {
+            check(4);
+            int v = (buf[pos] & 0xff)
+                    | (buf[pos + 1] & 0xff) << 8
+                    | (buf[pos + 2] & 0xff) << 16
+                    | (buf[pos + 3] & 0xff) << 24;
+            pos += 4;
+            return v;
+        }
+
+        long readLong() {
+            long lo = readInt() & 0xffffffffL;
+            return lo | (long) readInt() << 32;
+        }
+
+        float readFloat() {
+            return Float.intBitsToFloat(readInt());
+        }
+
+        String readString() {
+            int len = readInt();
+            if (len < 0)
+                throw new IllegalArgumentException("Negative string length " + len);
+            check(len);
+            String s = new String(buf, pos, len, UTF8);
+            pos += len;
+            return s;
+        }
+
+        private void check(int n) {
+            if (end - pos < n)
+                throw new IllegalArgumentException(String.format("Message truncated at %d, need %d more bytes", pos, n));
+        }
+    }
+
+    // Growable little-endian writer producing the same layout the Reader consumes.
+    static final class Writer {
+        private byte[] buf;
+        private int size;
+
+        Writer() {
+            this(64);
+        }
+
+        Writer(int capacity) {
+            buf = new byte[capacity];
+        }
+
+        Writer clear() {
+            size = 0;
+            return this;
+        }
+
+        int size() {
+            return size;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, size);
+        }
+
+        Writer writeByte(int v) {
+            ensure(1);
+            buf[size++] = (byte) v;
+            return this;
+        }
+
+        Writer writeBool(boolean v) {
+            return writeByte(v ? 1 : 0);
+        }
+
+        Writer writeInt(int v) {
+            ensure(4);
+            buf[size] = (byte) v;
+            buf[size + 1] = (byte) (v >>> 8);
+            buf[size + 2] = (byte) (v >>> 16);
+            buf[size + 3] = (byte) (v >>> 24);
+            size += 4;
+            return this;
+        }
+
+        Writer writeLong(long v) {
+            writeInt((int) v);
+            return writeInt((int) (v >>> 32));
+        }
+
+        Writer writeFloat(float v) {
+            return writeInt(Float.floatToIntBits(v));
+        }
+
+        Writer writeString(String s) {
+            byte[] bytes = (s == null ? "" : s).getBytes(UTF8);
+            writeInt(bytes.length);
+            return writeBytes(bytes);
+        }
+
+        Writer writeBytes(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, size, bytes.length);
+            size += bytes.length;
+            return this;
+        }
+
+        private void ensure(int n) {
+            if (size + n > buf.length)
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + n));
+        }
+    }
+
+    static byte[] encodeCreate(EditBox.CreateParams p) {
+        return writeCreateFields(new Writer(128).writeByte(OP_CREATE), p).toByteArray();
+    }
+
+    static byte[] encodeRegisterStyle(int styleId, EditBox.CreateParams p) {
+        return writeCreateFields(new Writer(128).writeByte(OP_REGISTER_STYLE).writeInt(styleId), p).toByteArray();
+    }
+
+    // Takes the fields named by overrides from p.
+    static byte[] encodeCreateStyled(int styleId, float x, float y, float width, float height,
+                                     int overrides, EditBox.CreateParams p) {
+        Writer w = new Writer(64).writeByte(OP_CREATE_STYLED).writeInt(styleId)
+                .writeFloat(x).writeFloat(y).writeFloat(width).writeFloat(height)
+                .writeInt(overrides);
+        if ((overrides & OVERRIDE_CHARACTER_LIMIT) != 0)
+            w.writeInt(p.characterLimit);
+        if ((overrides & OVERRIDE_TEXT_COLOR) != 0)
+            w.writeInt(p.textColor);
+        if ((overrides & OVERRIDE_BACK_COLOR) != 0)
+            w.writeInt(p.backColor);
+        if ((overrides & OVERRIDE_PLACEHOLDER_COLOR) != 0)
+            w.writeInt(p.placeHolderColor);
+        if ((overrides & OVERRIDE_FONT_SIZE) != 0)
+            w.writeFloat(p.fontSize);
+        if ((overrides & OVERRIDE_MULTILINE) != 0)
+            w.writeBool(p.multiline);
+        if ((overrides & OVERRIDE_CONTENT_TYPE) != 0)
+            w.writeByte(indexOf(CONTENT_TYPES, p.contentType));
+        if ((overrides & OVERRIDE_KEYBOARD_TYPE) != 0)
+            w.writeByte(indexOf(KEYBOARD_TYPES, p.keyboardType));
+        if ((overrides & OVERRIDE_INPUT_TYPE) != 0)
+            w.writeByte(indexOf(INPUT_TYPES, p.inputType));
+        if ((overrides & OVERRIDE_RETURN_KEY_TYPE) != 0)
+            w.writeByte(indexOf(RETURN_KEY_TYPES, p.returnKeyType));
+        if ((overrides & OVERRIDE_ALIGN) != 0)
+            w.writeByte(indexOf(ALIGNMENTS, p.alignment));
+        if ((overrides & OVERRIDE_PLACEHOLDER) != 0)
+            w.writeString(p.placeHolder);
+        if ((overrides & OVERRIDE_FONT) != 0)
+            w.writeString(p.font);
+        if ((overrides & OVERRIDE_TEXT_CHANGE_MODE) != 0)
+            w.writeByte(indexOf(TEXT_CHANGE_MODES, p.textChangeMode));
+        if ((overrides & OVERRIDE_TEXT_CHANGE_INTERVAL) != 0)
+            w.writeInt(p.textChangeInterval);
+        if ((overrides & OVERRIDE_CHARACTER_LIMIT_UNIT) != 0)
+            w.writeByte(indexOf(CHARACTER_LIMIT_UNITS, p.characterLimitUnit));
+        if ((overrides & OVERRIDE_VALIDATION_RULE) != 0)
+            w.writeInt(p.validationRule);
+        return w.toByteArray();
+    }
+
+    // Reads the overrides of an OP_CREATE_STYLED into p, which holds the style's params. Returns the OVERRIDE_* bits.
+    static int decodeOverrides(Reader r, EditBox.CreateParams p) {
+        int overrides = r.readInt();
+        if ((overrides & OVERRIDE_CHARACTER_LIMIT) != 0)
+            p.characterLimit = r.readInt();
+        if ((overrides & OVERRIDE_TEXT_COLOR) != 0)
+            p.textColor = r.readInt();
+        if ((overrides & OVERRIDE_BACK_COLOR) != 0)
+            p.backColor = r.readInt();
+        if ((overrides & OVERRIDE_PLACEHOLDER_COLOR) != 0)
+            p.placeHolderColor = r.readInt();
+        if ((overrides & OVERRIDE_FONT_SIZE) != 0)
+            p.fontSize = r.readFloat();
+        if ((overrides & OVERRIDE_MULTILINE) != 0)
+            p.multiline = r.readBool();
+        if ((overrides & OVERRIDE_CONTENT_TYPE) != 0)
+            p.contentType = nameAt(CONTENT_TYPES, r.readByte());
+        if ((overrides & OVERRIDE_KEYBOARD_TYPE) != 0)
+            p.keyboardType = nameAt(KEYBOARD_TYPES, r.readByte());
+        if ((overrides & OVERRIDE_INPUT_TYPE) != 0)
+            p.inputType = nameAt(INPUT_TYPES, r.readByte());
+        if ((overrides & OVERRIDE_RETURN_KEY_TYPE) != 0)
+            p.returnKeyType = nameAt(RETURN_KEY_TYPES, r.readByte());
+        if ((overrides & OVERRIDE_ALIGN) != 0)
+            p.alignment = nameAt(ALIGNMENTS, r.readByte());
+        if ((overrides & OVERRIDE_PLACEHOLDER) != 0)
+            p.placeHolder = r.readString();
+        if ((overrides & OVERRIDE_FONT) != 0)
+            p.font = r.readString();
+        if ((overrides & OVERRIDE_TEXT_CHANGE_MODE) != 0)
+            p.textChangeMode = nameAt(TEXT_CHANGE_MODES, r.readByte());
+        if ((overrides & OVERRIDE_TEXT_CHANGE_INTERVAL) != 0)
+            p.textChangeInterval = r.readInt();
+        if ((overrides & OVERRIDE_CHARACTER_LIMIT_UNIT) != 0)
+            p.characterLimitUnit = nameAt(CHARACTER_LIMIT_UNITS, r.readByte());
+        if ((overrides & OVERRIDE_VALIDATION_RULE) != 0)
+            p.validationRule = r.readInt();
+        return overrides;
+    }
+
+    private static Writer writeCreateFields(Writer w, EditBox.CreateParams p) {
+        return w
+                .writeFloat((float) p.x).writeFloat((float) p.y)
+                .writeFloat((float) p.width).writeFloat((float) p.height)
+                .writeInt(p.characterLimit)
+                .writeInt(p.textColor).writeInt(p.backColor).writeInt(p.placeHolderColor)
+                .writeFloat(p.fontSize)
+                .writeBool(p.multiline)
+                .writeByte(indexOf(CONTENT_TYPES, p.contentType))
+                .writeByte(indexOf(KEYBOARD_TYPES, p.keyboardType))
+                .writeByte(indexOf(INPUT_TYPES, p.inputType))
+                .writeByte(indexOf(RETURN_KEY_TYPES, p.returnKeyType))
+                .writeByte(indexOf(ALIGNMENTS, p.alignment))
+                .writeString(p.placeHolder)
+                .writeString(p.font)
+                .writeByte(indexOf(TEXT_CHANGE_MODES, p.textChangeMode))
+                .writeInt(p.textChangeInterval)
+                .writeByte(indexOf(CHARACTER_LIMIT_UNITS, p.characterLimitUnit))
+                .writeInt(p.validationRule);
+    }
+
+    static void decodeCreate(Reader r, EditBox.CreateParams p) {
+        p.x = r.readFloat();
+        p.y = r.readFloat();
+        p.width = r.readFloat();
+        p.height = r.readFloat();
+        p.characterLimit = r.readInt();
+        p.textColor = r.readInt();
+        p.backColor = r.readInt();
+        p.placeHolderColor = r.readInt();
+        p.fontSize = r.readFloat();
+        p.multiline = r.readBool();
+        p.contentType = nameAt(CONTENT_TYPES, r.readByte());
+        p.keyboardType = nameAt(KEYBOARD_TYPES, r.readByte());
+        p.inputType = nameAt(INPUT_TYPES, r.readByte());
+        p.returnKeyType = nameAt(RETURN_KEY_TYPES, r.readByte());
+        p.alignment = nameAt(ALIGNMENTS, r.readByte());
+        p.placeHolder = r.readString();
+        p.font = r.readString();
+        if (r.remaining() > 0) {
+            p.textChangeMode = nameAt(TEXT_CHANGE_MODES, r.readByte());
+            p.textChangeInterval = r.readInt();
+        } else {
+            p.textChangeMode = EditBox.TEXT_CHANGE_FULL;
+            p.textChangeInterval = 0;
+        }
+        p.characterLimitUnit = r.remaining() > 0
+                ? nameAt(CHARACTER_LIMIT_UNITS, r.readByte()) : CharacterLimitFilter.UNIT_CODE_UNITS;
+        p.validationRule = r.remaining() > 0 ? r.readInt() : 0;
+    }
+
+    static byte[] encodeBulk(int[] senderIds, byte[][] msgs) {
+        Writer w = new Writer(256).writeInt(msgs.length);
+        for (int i = 0; i < msgs.length; i++)
+            w.writeInt(senderIds[i]).writeInt(msgs[i].length).writeBytes(msgs[i]);
+        return w.toByteArray();
+    }
+
+    static byte[] encodeRemove() {
+        return new byte[]{OP_REMOVE};
+    }
+
+    static byte[] encodeSetText(String text) {
+        return new Writer().writeByte(OP_SET_TEXT).writeString(text).toByteArray();
+    }
+
+    static byte[] encodeReplaceText(int start, int end, String text) {
+        return new Writer().writeByte(OP_REPLACE_TEXT).writeInt(start).writeInt(end).writeString(text).toByteArray();
+    }
+
+    static byte[] encodeSetTextChunked(String text, int chunkSize) {
+        return new Writer().writeByte(OP_SET_TEXT_CHUNKED).writeInt(chunkSize).writeString(text).toByteArray();
+    }
+
+    static byte[] encodeSetRect(float x, float y, float width, float height) {
+        return new Writer(17).writeByte(OP_SET_RECT)
+                .writeFloat(x).writeFloat(y).writeFloat(width).writeFloat(height)
+                .toByteArray();
+    }
+
+    static byte[] encodeSetTextSize(float fontSize) {
+        return new Writer(5).writeByte(OP_SET_TEXTSIZE).writeFloat(fontSize).toByteArray();
+    }
+
+    static byte[] encodeSetFocus(boolean isFocus) {
+        return new byte[]{OP_SET_FOCUS, (byte) (isFocus ? 1 : 0)};
+    }
+
+    static byte[] encodeSetVisible(boolean isVisible) {
+        return new byte[]{OP_SET_VISIBLE, (byte) (isVisible ? 1 : 0)};
+    }
+
+    static byte[] encodeAndroidKeyDown(int keyCode) {
+        return new Writer(5).writeByte(OP_ANDROID_KEY_DOWN).writeInt(keyCode).toByteArray();
+    }
+}
@@ -0,0 +1,114 @@
+package com.bkmin.android;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Lock-free queue of messages from Unity, drained on the UI thread in one pass.
+// State setters (SetRect, SetText, ...) for the same box and message type collapse to the last one queued.
+final class MsgQueue {
+    private static final int TYPE_OTHER = 0;
+    private static final int TYPE_SET_TEXT = 1;
+    private static final int TYPE_SET_RECT = 2;
+    private static final int TYPE_SET_TEXTSIZE = 3;
+    private static final int TYPE_SET_FOCUS = 4;
+    private static final int TYPE_SET_VISIBLE = 5;
+
+    private static final class Entry {
+        final EditCommand cmd;
+        final int type;
+        final long postTime;
+        volatile boolean superseded;
+
+        Entry(EditCommand cmd) {
+            this.cmd = cmd;
+            this.type = msgType(cmd.op);
+            this.postTime = BridgeMetrics.onPosted();
+        }
+
+        long key() {
+            return ((long) cmd.senderId << 8) | type;
+        }
+    }
+
+    private final ConcurrentLinkedQueue<Entry> queue = new ConcurrentLinkedQueue<>();
+    private final ConcurrentHashMap<Long, Entry> latest = new ConcurrentHashMap<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+
+    private final AtomicLong postedCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong drainCount = new AtomicLong();
+
+    void enqueue(EditCommand cmd) {
+        Entry entry = new Entry(cmd);
+        postedCount.incrementAndGet();
+        if (entry.type != TYPE_OTHER) {
+            Entry prev = latest.put(entry.key(), entry);
+            if (prev != null) {
+                prev.superseded = true;
+                coalescedCount.incrementAndGet();
+            }
+        }
+        queue.offer(entry);
+    }
+
+    // Marks a drain as pending. Returns true when the caller has to post a drain to the UI thread,
+    // false if the queue is empty or a drain is already on its way.
+    boolean requestDrain() {
+        return !queue.isEmpty() && drainScheduled.compareAndSet(false, true);
+    }
+
+    void drain(PluginHost host) {
+        drainScheduled.set(false);
+        drainCount.incrementAndGet();
+
+        Entry entry;
+        while ((entry = queue.poll()) != null) {
+            long startTime = BridgeMetrics.onDequeued(entry.postTime);
+            if (entry.superseded)
+                continue;
+            if (entry.type != TYPE_OTHER)
+                latest.remove(entry.key(), entry);
+
+            byte op = EditBox.processCommand(host, entry.cmd);
+            BridgeMetrics.recordInbound(op, entry.postTime, startTime);
+        }
+    }
+
+    boolean hasPending() {
+        return !queue.isEmpty();
+    }
+
+    // Drops the queued messages. They still leave the bridge metrics' queue depth.
+    void clear() {
+        Entry entry;
+        while ((entry = queue.poll()) != null)
+            BridgeMetrics.onDequeued(entry.postTime);
+        latest.clear();
+        drainScheduled.set(false);
+    }
+
+    String getStats() {
+        return String.format("{\"posted\":%d,\"coalesced\":%d,\"drains\":%d,\"pending\":%d}",
+                postedCount.get(), coalescedCount.get(), drainCount.get(), queue.size());
+    }
+
+    private static int msgType(byte op) {
+        switch (op) {
+            case MsgCodec.OP_SET_TEXT:
+            case MsgCodec.OP_SET_TEXT_CHUNKED:
+                return TYPE_SET_TEXT;
+            case MsgCodec.OP_SET_RECT:
+                return TYPE_SET_RECT;
+            case MsgCodec.OP_SET_TEXTSIZE:
+                return TYPE_SET_TEXTSIZE;
+            case MsgCodec.OP_SET_FOCUS:
+                return TYPE_SET_FOCUS;
+            case MsgCodec.OP_SET_VISIBLE:
+                return TYPE_SET_VISIBLE;
+            default:
+                return TYPE_OTHER;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.bkmin.android;
+
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Optional recorder of the messages crossing the bridge, replayed off-device by the benchmark module's TraceReplay.
+// Callers only encode a record and queue it; a writer thread does the file I/O. At most maxBufferedBytes of records
+// wait for the writer, records beyond that are dropped and counted rather than blocking the Unity or UI thread.
+// While stopped every hook is a single volatile read.
+//
+// The file uses MsgCodec's little-endian layout: a header of MAGIC (int), VERSION (int), protocol (int), the
+// EditText pool size given to Init (int, -1 for none) and the wall clock start time (long, ms), then records of
+// kind (byte), time since start (long, ns) and:
+//   IN_JSON, IN_BINARY          senderId (int), message (string or int32 length + bytes)
+//   IN_BULK_JSON, IN_BULK_BINARY  messages (string or int32 length + bytes)
+//   OUT, OUT_BATCH              JSON sent to Unity (string)
+//   BATCH_MODE                  mode (int)
+//   FLUSH                       -
+//   OUTBOUND_BATCHING           enabled (byte)
+//   LAZY_VIEWS                  enabled (byte), releaseDelayMs (int)
+//   VALIDATION_RULE             ruleId (int), regex (string)
+//   KEYBOARD_AVOIDANCE          mode (int), durationMs (int)
+//   SUGGESTIONS                 senderId, indexId, maxResults, intervalMs (int)
+//   SUGGESTION_INDEX            indexId (int), path (string)
+//   SUGGESTION_INDEX_BUFFER     indexId (int), utf8Lines (int32 length + bytes)
+final class MsgTrace {
+    static final int MAGIC = 0x5254454e; // "NETR"
+    static final int VERSION = 2;
+
+    static final byte IN_JSON = 1;
+    static final byte IN_BINARY = 2;
+    static final byte IN_BULK_JSON = 3;
+    static final byte IN_BULK_BINARY = 4;
+    static final byte OUT = 5;
+    static final byte OUT_BATCH = 6;
+    static final byte BATCH_MODE = 7;
+    static final byte FLUSH = 8;
+    static final byte OUTBOUND_BATCHING = 9;
+    static final byte LAZY_VIEWS = 10;
+    static final byte VALIDATION_RULE = 11;
+    static final byte KEYBOARD_AVOIDANCE = 12;
+    static final byte SUGGESTIONS = 13;
+    static final byte SUGGESTION_INDEX = 14;
+    static final byte SUGGESTION_INDEX_BUFFER = 15;
+
+    private static final byte[] END = new byte[0];
+
+    private static volatile Recorder recorder = null;
+
+    private MsgTrace() {
+    }
+
+    private static final class Recorder implements Runnable {
+        final LinkedBlockingQueue<byte[]> queue = new LinkedBlockingQueue<>();
+        final AtomicLong bufferedBytes = new AtomicLong();
+        final AtomicLong dropped = new AtomicLong();
+        final long maxBufferedBytes;
+        final long startTime = System.nanoTime();
+        final OutputStream out;
+        final String path;
+
+        Recorder(String path, int protocol, int poolSize, long maxBufferedBytes) throws IOException {
+            this.path = path;
+            this.maxBufferedBytes = maxBufferedBytes;
+            out = new BufferedOutputStream(new FileOutputStream(path), 64 * 1024);
+            out.write(new MsgCodec.Writer(24).writeInt(MAGIC).writeInt(VERSION).writeInt(protocol).writeInt(poolSize)
+                    .writeLong(System.currentTimeMillis()).toByteArray());
+        }
+
+        void add(byte[] record) {
+            if (bufferedBytes.addAndGet(record.length) > maxBufferedBytes) {
+                bufferedBytes.addAndGet(-record.length);
+                dropped.incrementAndGet();
+                return;
+            }
+            queue.add(record);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    byte[] record = queue.take();
+                    if (record == END)
+                        break;
+                    bufferedBytes.addAndGet(-record.length);
+                    out.write(record);
+                    if (queue.isEmpty())
+                        out.flush();
+                }
+            } catch (IOException | InterruptedException e) {
+                Log.e(NativeEditPlugin.LOG_TAG, "Msg trace stopped: " + e);
+            } finally {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                }
+            }
+            if (dropped.get() > 0)
+                Log.i(NativeEditPlugin.LOG_TAG, String.format("Msg trace %s dropped %d records", path, dropped.get()));
+        }
+    }
+
+    // Starts writing to path, replacing a trace in progress. Returns the error, or null if recording started.
+    static synchronized String start(String path, int protocol, int poolSize, int maxBufferedKb) {
+        stop();
+        try {
+            Recorder r = new Recorder(path, protocol, poolSize, Math.max(1, maxBufferedKb) * 1024L);
+            Thread writer = new Thread(r, "NativeEditMsgTrace");
+            writer.setDaemon(true);
+            writer.start();
+            recorder = r;
+            return null;
+        } catch (IOException e) {
+            return e.getMessage();
+        }
+    }
+
+    // Records already queued are still written.
+    static synchronized void stop() {
+        Recorder r = recorder;
+        if (r == null)
+            return;
+        recorder = null;
+        r.queue.add(END);
+    }
+
+    static void recordIn(int senderId, String jsonMsg) {
+        Recorder r = recorder;
+        if (r != null)
+            r.add(header(r, IN_JSON).writeInt(senderId).writeString(jsonMsg).toByteArray());
+    }
+
+    static void recordIn(int senderId, byte[] msg) {
+        Recorder r = recorder;
+        if (r != null)
+            r.add(header(r, IN_BINARY).writeInt(senderId).writeInt(msg.length).writeBytes(msg).toByteArray());
+    }
+
+    static void recordInBulk(String jsonMsgs) {
+        Recorder r = recorder;
+        if (r != null)
+            r.add(header(r, IN_BULK_JSON).writeString(jsonMsgs).toByteArray());
+    }
+
+    static void recordInBulk(byte[] msgs) {
+        Recorder r = recorder;
+        if (r != null)
+            r.add(header(r, IN_BULK_BINARY).writeInt(msgs.length).writeBytes(msgs).toByteArray());
+    }
+
+    static void recordOut(byte kind, String json) {
+        Recorder r = recorder;
+        if (r != null)
+            r.add(header(r, kind).writeString(json).toByteArray());
+    }
+
+    static void recordBatchMode(int mode) {
+        Recorder r = recorder;
+        if (r != null)
+            r.add(header(r, BATCH_MODE).writeInt(mode).toByteArray());
+    }
+
+    static void recordFlush() {
+        Recorder r = recorder;
+        if (r != null)
+            r.add(header(r, FLUSH).toByteArray());
+    }
+
+    static void recordOutboundBatching(boolean enabled) {
+        Recorder r = recorder;
+        if (r != null)
+            r.add(header(r, OUTBOUND_BATCHING).writeBool(enabled).toByteArray());
+    }
+
+    static void recordLazyViews(boolean enabled, int releaseDelayMs) {
+        Recorder r = recorder;
+        if (r != null)
+            r.add(header(r, LAZY_VIEWS).writeBool(enabled).writeInt(releaseDelayMs).toByteArray());
+    }
+
+    static void recordValidationRule(int ruleId, String regex) {
+        Recorder r = recorder;
+        if (r != null)
+            r.add(header(r, VALIDATION_RULE).writeInt(ruleId).writeString(regex).toByteArray());
+    }
+
+    static void recordKeyboardAvoidance(int mode, int durationMs) {
+        Recorder r = recorder;
+        if (r != null)
+            r.add(header(r, KEYBOARD_AVOIDANCE).writeInt(mode).writeInt(durationMs).toByteArray());
+    }
+
+    static void recordSuggestions(int senderId, int indexId, int maxResults, int intervalMs) {
+        Recorder r = recorder;
+        if (r != null)
+            r.add(header(r, SUGGESTIONS).writeInt(senderId).writeInt(indexId).writeInt(maxResults)
+                    .writeInt(intervalMs).toByteArray());
+    }
+
+    static void recordSuggestionIndex(int indexId, String path) {
+        Recorder r = recorder;
+        if (r != null)
+            r.add(header(r, SUGGESTION_INDEX).writeInt(indexId).writeString(path).toByteArray());
+    }
+
+    static void recordSuggestionIndex(int indexId, byte[] utf8Lines) {
+        Recorder r = recorder;
+        if (r != null)
+            r.add(header(r, SUGGESTION_INDEX_BUFFER).writeInt(indexId).writeInt(utf8Lines.length)
+                    .writeBytes(utf8Lines).toByteArray());
+    }
+
+    private static MsgCodec.Writer header(Recorder r, byte kind) {
+        return new MsgCodec.Writer(64).writeByte(kind).writeLong(System.nanoTime() - r.startTime);
+    }
+}
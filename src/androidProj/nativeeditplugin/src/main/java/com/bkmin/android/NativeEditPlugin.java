@@ -1,99 +1,507 @@
 package com.bkmin.android;
 
-import android.app.Activity;
+import android.content.Context;
+import android.content.res.Configuration;
 import android.util.Log;
-import android.view.View;
-import android.view.ViewGroup;
-import android.widget.RelativeLayout;
+import android.view.Choreographer;
 
 import com.unity3d.player.UnityPlayer;
 
+import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.nio.ByteBuffer;
+
 public class NativeEditPlugin {
-    public static Activity unityActivity;
-    public static ViewGroup rootView;
-    private static RelativeLayout mainLayout;
-    private static ViewGroup topViewGroup;
+    // Message protocols Unity can pick when initializing the plugin.
+    public static final int PROTOCOL_JSON = 0;
+    public static final int PROTOCOL_BINARY = 1;
+
+    // Batch modes for messages from Unity. BATCH_AUTO drains the queue once per frame, on the next vsync after a
+    // message was queued. BATCH_MANUAL waits for FlushPluginMsgs (typically called once at the end of a Unity frame).
+    public static final int BATCH_OFF = 0;
+    public static final int BATCH_AUTO = 1;
+    public static final int BATCH_MANUAL = 2;
+
+    // Views, boxes and settings of the current activity, null while the plugin is closed. Set on Unity's thread,
+    // every UI-thread task is posted through its activity.
+    private static volatile PluginHost host = null;
     private static String unityName = "";
+    private static int msgProtocol = PROTOCOL_JSON;
+    // EditText pool size given to Init, kept for the msg trace header.
+    private static int poolSize = -1;
+    private static volatile int batchMode = BATCH_OFF;
+    private static final MsgQueue msgQueue = new MsgQueue();
+    // Outbound batching state, only touched on the UI thread.
+    private static boolean outboundBatching = false;
+    private static final EventBatch eventBatch = new EventBatch();
+    private static final Runnable drainMsgQueueTask = new Runnable() {
+        public void run() {
+            PluginHost target = host;
+            if (target != null)
+                msgQueue.drain(target);
+            else
+                msgQueue.clear();
+        }
+    };
+    // BATCH_AUTO: the UI thread waits for the next frame before draining, so a frame's messages go in one pass.
+    private static final Choreographer.FrameCallback drainMsgQueueOnFrame = new Choreographer.FrameCallback() {
+        public void doFrame(long frameTimeNanos) {
+            drainMsgQueueTask.run();
+        }
+    };
+    private static final Runnable drainMsgQueueNextFrame = new Runnable() {
+        public void run() {
+            Choreographer.getInstance().postFrameCallback(drainMsgQueueOnFrame);
+        }
+    };
 
     static final String LOG_TAG = "NativeEditPlugin";
+    private static final String EMPTY_JSON = "{}";
 
-    private static View getLeafView(View view) {
-        if (view instanceof ViewGroup) {
-            ViewGroup vg = (ViewGroup) view;
-            for (int i = 0; i < vg.getChildCount(); ++i) {
-                View childView = vg.getChildAt(i);
-                View result = getLeafView(childView);
-                if (result != null)
-                    return result;
-            }
-            return null;
-        } else {
-            Log.i(LOG_TAG, "Found leaf view");
-            return view;
-        }
+    static PluginHost getHost() {
+        return host;
+    }
+
+    // For resolving fonts while decoding on Unity's thread, null while the plugin is closed.
+    static Context getApplicationContext() {
+        PluginHost target = host;
+        return target != null ? target.activity.getApplicationContext() : null;
+    }
+
+    // Runs task on the UI thread of the current activity. Dropped while the plugin is closed.
+    private static void runOnUiThread(Runnable task) {
+        PluginHost target = host;
+        if (target != null)
+            target.activity.runOnUiThread(task);
     }
 
     @SuppressWarnings("unused")
     public static void InitPluginMsgHandler(final String _unityName) {
-        unityActivity = UnityPlayer.currentActivity;
+        InitPluginMsgHandler(_unityName, PROTOCOL_JSON);
+    }
+
+    @SuppressWarnings("unused")
+    public static void InitPluginMsgHandler(final String _unityName, final int protocol) {
+        InitPluginMsgHandler(_unityName, protocol, -1);
+    }
+
+    // editTextPoolSize >= 0 sets the capacity of the EditText pool and pre-warms it to that size.
+    @SuppressWarnings("unused")
+    public static void InitPluginMsgHandler(final String _unityName, final int protocol, final int editTextPoolSize) {
         unityName = _unityName;
+        msgProtocol = protocol;
+        poolSize = editTextPoolSize;
 
-        unityActivity.runOnUiThread(new Runnable() {
+        final PluginHost previous = host;
+        final PluginHost created = new PluginHost(UnityPlayer.currentActivity);
+        host = created;
+        created.activity.runOnUiThread(new Runnable() {
             public void run() {
-                if (mainLayout != null)
-                    topViewGroup.removeView(mainLayout);
-
-                rootView = unityActivity.findViewById(android.R.id.content);
-                View topMostView = getLeafView(rootView);
-                topViewGroup = (ViewGroup) topMostView.getParent();
-                mainLayout = new RelativeLayout(unityActivity);
-                RelativeLayout.LayoutParams rlp = new RelativeLayout.LayoutParams(
-                        RelativeLayout.LayoutParams.MATCH_PARENT,
-                        RelativeLayout.LayoutParams.MATCH_PARENT);
-                topViewGroup.addView(mainLayout, rlp);
-
-                rootView.setOnSystemUiVisibilityChangeListener
-                        (new View.OnSystemUiVisibilityChangeListener() {
-                            @Override
-                            public void onSystemUiVisibilityChange(int visibility) {
-                                int systemUiVisibilitySettings =
-                                        View.SYSTEM_UI_FLAG_LAYOUT_STABLE
-                                                | View.SYSTEM_UI_FLAG_LAYOUT_HIDE_NAVIGATION
-                                                | View.SYSTEM_UI_FLAG_LAYOUT_FULLSCREEN
-                                                | View.SYSTEM_UI_FLAG_HIDE_NAVIGATION
-                                                | View.SYSTEM_UI_FLAG_FULLSCREEN
-                                                | View.SYSTEM_UI_FLAG_IMMERSIVE_STICKY;
-                                rootView.setSystemUiVisibility(systemUiVisibilitySettings);
-                            }
-                        });
+                // Init without Close, e.g. after the activity was recreated.
+                if (previous != null)
+                    previous.close();
+                created.attach();
+
+                if (editTextPoolSize >= 0) {
+                    EditTextPool.setCapacity(editTextPoolSize);
+                    EditTextPool.prewarm(created.activity.getApplicationContext());
+                }
             }
         });
     }
 
+    // Removes every box and everything the plugin attached to the activity. Messages still queued are dropped.
     @SuppressWarnings("unused")
     public static void ClosePluginMsgHandler() {
-        unityActivity.runOnUiThread(new Runnable() {
+        EditStyles.clear();
+        InputValidator.clear();
+        SuggestionIndex.clear();
+        TypefaceCache.clear();
+        final PluginHost closing = host;
+        if (closing == null)
+            return;
+        host = null;
+        closing.activity.runOnUiThread(new Runnable() {
             public void run() {
-                topViewGroup.removeView(mainLayout);
+                msgQueue.clear();
+                closing.close();
+                // After close, so TextEndEdit of a box that was being edited still goes out.
+                eventBatch.flush();
+                eventBatch.cancel();
             }
         });
     }
 
     public static void SendUnityMessage(JSONObject jsonMsg) {
-        UnityPlayer.UnitySendMessage(unityName, "OnMsgFromPlugin", jsonMsg.toString());
+        if (outboundBatching) {
+            if (BridgeMetrics.isEnabled())
+                BridgeMetrics.countBatchedOutbound(jsonMsg.optString("msg"));
+            eventBatch.add(jsonMsg);
+            return;
+        }
+        long startTime = BridgeMetrics.startOutbound();
+        String strMsg = jsonMsg.toString();
+        UnityPlayer.UnitySendMessage(unityName, "OnMsgFromPlugin", strMsg);
+        if (startTime != 0)
+            BridgeMetrics.recordOutbound(jsonMsg.optString("msg"), startTime);
+        MsgTrace.recordOut(MsgTrace.OUT, strMsg);
+    }
+
+    // Sends a JSON array of events to Unity's OnMsgBatchFromPlugin.
+    static void SendUnityBatch(String jsonArray) {
+        long startTime = BridgeMetrics.startOutbound();
+        UnityPlayer.UnitySendMessage(unityName, "OnMsgBatchFromPlugin", jsonArray);
+        if (startTime != 0)
+            BridgeMetrics.recordOutbound(BridgeMetrics.OUT_BATCH, startTime);
+        MsgTrace.recordOut(MsgTrace.OUT_BATCH, jsonArray);
+    }
+
+    // When enabled, events for Unity are collected and sent once per vsync as a JSON array to
+    // OnMsgBatchFromPlugin instead of one OnMsgFromPlugin call per event.
+    @SuppressWarnings("unused")
+    public static void SetOutboundBatching(final boolean enabled) {
+        MsgTrace.recordOutboundBatching(enabled);
+        runOnUiThread(new Runnable() {
+            public void run() {
+                outboundBatching = enabled;
+                if (!enabled)
+                    eventBatch.flush();
+            }
+        });
+    }
+
+    // mode is one of EditBox.AVOID_SCROLL (0, default), AVOID_TRANSLATE (1) or AVOID_REPORT (2).
+    // durationMs is the length of the translate animation. Applies until ClosePluginMsgHandler.
+    @SuppressWarnings("unused")
+    public static void SetKeyboardAvoidance(final int mode, final int durationMs) {
+        MsgTrace.recordKeyboardAvoidance(mode, durationMs);
+        final PluginHost target = host;
+        if (target == null)
+            return;
+        target.activity.runOnUiThread(new Runnable() {
+            public void run() {
+                if (!target.isClosed())
+                    EditBox.setKeyboardAvoidance(target, mode, durationMs);
+            }
+        });
+    }
+
+    // When enabled, boxes only have a native EditText while they are shown or focused. A hidden box releases its view
+    // after releaseDelayMs and keeps its text, style and rect until it is shown again.
+    // Applies until ClosePluginMsgHandler.
+    @SuppressWarnings("unused")
+    public static void SetLazyViews(final boolean enabled, final int releaseDelayMs) {
+        MsgTrace.recordLazyViews(enabled, releaseDelayMs);
+        final PluginHost target = host;
+        if (target == null)
+            return;
+        target.activity.runOnUiThread(new Runnable() {
+            public void run() {
+                if (!target.isClosed())
+                    EditBox.setLazyViews(target, enabled, releaseDelayMs);
+            }
+        });
+    }
+
+    @SuppressWarnings("unused")
+    public static void SetMsgBatchMode(int mode) {
+        MsgTrace.recordBatchMode(mode);
+        batchMode = mode;
+        // Don't strand messages queued under the previous mode, or let the next ones overtake a drain that waits
+        // for the frame.
+        if (msgQueue.hasPending())
+            runOnUiThread(drainMsgQueueTask);
+    }
+
+    @SuppressWarnings("unused")
+    public static void FlushPluginMsgs() {
+        MsgTrace.recordFlush();
+        if (msgQueue.requestDrain())
+            runOnUiThread(drainMsgQueueTask);
+    }
+
+    @SuppressWarnings("unused")
+    public static String GetMsgQueueStats() {
+        return msgQueue.getStats();
+    }
+
+    // SetRect updates of a box: applied to its view, or skipped because its pixel rect did not change.
+    @SuppressWarnings("unused")
+    public static String GetRectUpdateStats(int nSenderId) {
+        PluginHost target = host;
+        StateMirror mirror = target != null ? target.stateMap.get(nSenderId) : null;
+        try {
+            JSONObject jsonRet = new JSONObject();
+            if (mirror == null) {
+                jsonRet.put("bError", true);
+                jsonRet.put("strError", "EditBox not found, id : " + nSenderId);
+            } else {
+                jsonRet.put("applied", mirror.rectUpdatesApplied.get());
+                jsonRet.put("skipped", mirror.rectUpdatesSkipped.get());
+            }
+            return jsonRet.toString();
+        } catch (JSONException e) {
+            return EMPTY_JSON;
+        }
+    }
+
+    // Records every message between Unity and the plugin to a binary trace file at path, written on a background
+    // thread. Up to maxBufferedKb of records wait for the disk, more are dropped. Replay it with the benchmark
+    // module's TraceReplay.
+    @SuppressWarnings("unused")
+    public static String StartMsgTrace(String path, int maxBufferedKb) {
+        String error = MsgTrace.start(path, msgProtocol, poolSize, maxBufferedKb);
+        try {
+            JSONObject jsonRet = new JSONObject();
+            jsonRet.put("bError", error != null);
+            if (error != null)
+                jsonRet.put("strError", "Cannot start msg trace : " + error);
+            return jsonRet.toString();
+        } catch (JSONException e) {
+            return EMPTY_JSON;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static void StopMsgTrace() {
+        MsgTrace.stop();
+    }
+
+    // Compiles a regex once so CreateEdit can name it as validationRule. Register rules before the boxes using them;
+    // input that can no longer match the rule is rejected before it is committed.
+    @SuppressWarnings("unused")
+    public static String RegisterValidationRule(int ruleId, String regex) {
+        MsgTrace.recordValidationRule(ruleId, regex);
+        String error = InputValidator.register(ruleId, regex);
+        try {
+            JSONObject jsonRet = new JSONObject();
+            jsonRet.put("bError", error != null);
+            if (error != null)
+                jsonRet.put("strError", "Invalid validation rule " + ruleId + " : " + error);
+            return jsonRet.toString();
+        } catch (JSONException e) {
+            return EMPTY_JSON;
+        }
+    }
+
+    // Loads a dictionary for autocomplete, a UTF-8 file with one entry per line, on a background thread.
+    @SuppressWarnings("unused")
+    public static void LoadSuggestionIndex(int indexId, String path) {
+        MsgTrace.recordSuggestionIndex(indexId, path);
+        SuggestionIndex.load(indexId, path);
+    }
+
+    // Same as LoadSuggestionIndex, from the bytes of such a file.
+    @SuppressWarnings("unused")
+    public static void LoadSuggestionIndexFromBuffer(int indexId, byte[] utf8Lines) {
+        MsgTrace.recordSuggestionIndex(indexId, utf8Lines);
+        SuggestionIndex.load(indexId, utf8Lines);
+    }
+
+    // Makes a box send Suggestions events with up to maxResults entries of the index matching the word at the
+    // cursor, at most once per intervalMs. indexId 0 turns them off.
+    @SuppressWarnings("unused")
+    public static void SetSuggestions(final int nSenderId, final int indexId, final int maxResults, final int intervalMs) {
+        MsgTrace.recordSuggestions(nSenderId, indexId, maxResults, intervalMs);
+        final PluginHost target = host;
+        if (target == null)
+            return;
+        target.activity.runOnUiThread(new Runnable() {
+            public void run() {
+                EditBox box = target.getBox(nSenderId);
+                if (box != null)
+                    box.setSuggestions(indexId, maxResults, intervalMs);
+                else
+                    Log.e(LOG_TAG, "EditBox not found, id : " + nSenderId);
+            }
+        });
+    }
+
+    // Synchronous reads of the text, selection and focus of a box. They return the latest snapshot published
+    // by the UI thread and never wait for it.
+    @SuppressWarnings("unused")
+    public static String GetEditBoxState(int nSenderId) {
+        PluginHost target = host;
+        EditBox.State state = target != null ? target.getState(nSenderId) : null;
+        try {
+            if (state != null)
+                return state.toJson().toString();
+            JSONObject jsonRet = new JSONObject();
+            jsonRet.put("bError", true);
+            jsonRet.put("strError", "EditBox not found, id : " + nSenderId);
+            return jsonRet.toString();
+        } catch (JSONException e) {
+            return EMPTY_JSON;
+        }
+    }
+
+    // Direct buffer with the text of a box created with textChangeMode "Shared", null otherwise.
+    // See SharedTextBuffer for the layout. Fetch it again after a TextChangeShared event with reallocated set.
+    @SuppressWarnings("unused")
+    public static ByteBuffer GetSharedTextBuffer(int nSenderId) {
+        PluginHost target = host;
+        SharedTextBuffer shared = target != null ? target.getSharedText(nSenderId) : null;
+        return shared != null ? shared.getBuffer() : null;
+    }
+
+    @SuppressWarnings("unused")
+    public static String GetEditBoxText(int nSenderId) {
+        PluginHost target = host;
+        EditBox.State state = target != null ? target.getState(nSenderId) : null;
+        return state != null ? state.text : "";
+    }
+
+    // Soft keyboard keys are caught by EditBox.KeyInterceptor, only a hardware keyboard's keys reach Unity first and
+    // need AndroidKeyDown. Unity checks this when editing begins.
+    @SuppressWarnings("unused")
+    public static boolean HasHardwareKeyboard() {
+        PluginHost target = host;
+        if (target == null)
+            return false;
+        Configuration config = target.activity.getResources().getConfiguration();
+        return config.keyboard != Configuration.KEYBOARD_NOKEYS
+                && config.hardKeyboardHidden == Configuration.HARDKEYBOARDHIDDEN_NO;
+    }
+
+    @SuppressWarnings("unused")
+    public static String GetEditTextPoolStats() {
+        return EditTextPool.getStats();
+    }
+
+    @SuppressWarnings("unused")
+    public static void SetTypefaceCacheSize(int size) {
+        TypefaceCache.setCapacity(size);
+    }
+
+    @SuppressWarnings("unused")
+    public static String GetTypefaceCacheStats() {
+        return TypefaceCache.getStats();
     }
 
+    // Bridge instrumentation. Disabled by default; when disabled the hooks cost a single volatile read.
+    @SuppressWarnings("unused")
+    public static void SetBridgeMetricsEnabled(boolean enabled) {
+        BridgeMetrics.setEnabled(enabled);
+    }
+
+    @SuppressWarnings("unused")
+    public static void ResetBridgeMetrics() {
+        BridgeMetrics.reset();
+    }
+
+    @SuppressWarnings("unused")
+    public static String GetBridgeMetrics() {
+        return BridgeMetrics.dump();
+    }
+
+    private static void onMsgQueued() {
+        if (batchMode == BATCH_AUTO && msgQueue.requestDrain())
+            runOnUiThread(drainMsgQueueNextFrame);
+    }
+
+    // Messages are decoded on the calling Unity thread, the UI thread only applies the resulting EditCommand.
     @SuppressWarnings("unused")
     public static String SendUnityMsgToPlugin(final int nSenderId, final String jsonMsg) {
-        final Runnable task = new Runnable() {
+        MsgTrace.recordIn(nSenderId, jsonMsg);
+        postCommand(EditCommand.fromJson(nSenderId, jsonMsg));
+        return EMPTY_JSON;
+    }
+
+    // Binary counterpart of SendUnityMsgToPlugin, see MsgCodec for the message layout.
+    // Only accepted when the plugin was initialized with PROTOCOL_BINARY.
+    @SuppressWarnings("unused")
+    public static String SendUnityBinaryMsgToPlugin(final int nSenderId, final byte[] msg) {
+        if (msgProtocol != PROTOCOL_BINARY) {
+            Log.e(LOG_TAG, "Binary msg received but plugin was not initialized with PROTOCOL_BINARY, id : " + nSenderId);
+            return EMPTY_JSON;
+        }
+        MsgTrace.recordIn(nSenderId, msg);
+        postCommand(EditCommand.fromBinary(nSenderId, msg));
+        return EMPTY_JSON;
+    }
+
+    // Many messages in one call, e.g. every field of a form: a JSON array of the objects SendUnityMsgToPlugin takes,
+    // each with its senderId. They are applied in order in one UI-thread task.
+    @SuppressWarnings("unused")
+    public static String SendUnityBulkMsgToPlugin(final String jsonMsgs) {
+        MsgTrace.recordInBulk(jsonMsgs);
+        EditCommand[] cmds = EditCommand.fromJsonBulk(jsonMsgs);
+        if (cmds == null) {
+            Log.e(LOG_TAG, "Bulk msg is not a JSON array");
+            return EMPTY_JSON;
+        }
+        postCommands(cmds);
+        return EMPTY_JSON;
+    }
+
+    // Binary counterpart of SendUnityBulkMsgToPlugin, see MsgCodec for the framing.
+    @SuppressWarnings("unused")
+    public static String SendUnityBinaryBulkMsgToPlugin(final byte[] msgs) {
+        if (msgProtocol != PROTOCOL_BINARY) {
+            Log.e(LOG_TAG, "Binary bulk msg received but plugin was not initialized with PROTOCOL_BINARY");
+            return EMPTY_JSON;
+        }
+        MsgTrace.recordInBulk(msgs);
+        EditCommand[] cmds = EditCommand.fromBinaryBulk(msgs);
+        if (cmds != null)
+            postCommands(cmds);
+        return EMPTY_JSON;
+    }
+
+    private static void postCommands(final EditCommand[] cmds) {
+        if (batchMode != BATCH_OFF) {
+            for (EditCommand cmd : cmds) {
+                if (cmd.op != MsgCodec.OP_REGISTER_STYLE)
+                    msgQueue.enqueue(cmd);
+            }
+            onMsgQueued();
+            return;
+        }
+        final PluginHost target = host;
+        if (target == null)
+            return;
+        long time = 0;
+        for (int i = 0; i < cmds.length; i++)
+            time = BridgeMetrics.onPosted();
+        final long postTime = time;
+        target.activity.runOnUiThread(new Runnable() {
             public void run() {
-                EditBox.processRecvJsonMsg(mainLayout, nSenderId, jsonMsg);
+                if (target.isClosed()) {
+                    for (int i = 0; i < cmds.length; i++)
+                        BridgeMetrics.onDequeued(postTime);
+                    return;
+                }
+                for (EditCommand cmd : cmds) {
+                    long startTime = BridgeMetrics.onDequeued(postTime);
+                    byte op = EditBox.processCommand(target, cmd);
+                    BridgeMetrics.recordInbound(op, postTime, startTime);
+                }
             }
-        };
-        unityActivity.runOnUiThread(task);
-        return new JSONObject().toString();
+        });
     }
 
+    private static void postCommand(final EditCommand cmd) {
+        // Styles are registered while decoding.
+        if (cmd.op == MsgCodec.OP_REGISTER_STYLE)
+            return;
+        if (batchMode != BATCH_OFF) {
+            msgQueue.enqueue(cmd);
+            onMsgQueued();
+            return;
+        }
+        final PluginHost target = host;
+        if (target == null)
+            return;
+        final long postTime = BridgeMetrics.onPosted();
+        target.activity.runOnUiThread(new Runnable() {
+            public void run() {
+                long startTime = BridgeMetrics.onDequeued(postTime);
+                if (target.isClosed())
+                    return;
+                byte op = EditBox.processCommand(target, cmd);
+                BridgeMetrics.recordInbound(op, postTime, startTime);
+            }
+        });
+    }
 }
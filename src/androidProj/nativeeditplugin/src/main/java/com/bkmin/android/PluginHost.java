@@ -0,0 +1,182 @@
+package com.bkmin.android;
+
+import android.app.Activity;
+import android.util.Log;
+import android.util.SparseArray;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.inputmethod.InputMethodManager;
+import android.widget.RelativeLayout;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+// Everything the plugin attaches to one Unity activity: the layout holding the EditTexts, the boxes, their
+// settings, and the listeners registered on the activity's views. Created by InitPluginMsgHandler on Unity's thread,
+// which reaches the UI thread through activity, then attached and torn down by close() on the UI thread. Nothing
+// else refers to the activity, so it can be collected once ClosePluginMsgHandler has run.
+// Apart from activity and the state maps, only used on the UI thread.
+final class PluginHost {
+    static final String MSG_KEYBOARD_HEIGHT_CHANGED = "KeyboardHeightChanged";
+
+    final Activity activity;
+    // Set by attach().
+    ViewGroup rootView;
+    RelativeLayout mainLayout;
+    private ViewGroup topViewGroup;
+    private final SparseArray<EditBox> editBoxMap = new SparseArray<>();
+    private InputMethodManager inputMethodManager = null;
+    private boolean closed = false;
+
+    // Snapshots of the boxes, read by Unity's thread through GetEditBoxState and GetSharedTextBuffer.
+    final ConcurrentHashMap<Integer, StateMirror> stateMap = new ConcurrentHashMap<>();
+    final ConcurrentHashMap<Integer, SharedTextBuffer> sharedTextMap = new ConcurrentHashMap<>();
+
+    final KeyboardMetrics keyboardMetrics = new KeyboardMetrics();
+    // How the focused box is kept clear of the keyboard, one of EditBox.AVOID_*, and how long the translation takes.
+    int keyboardAvoidance = EditBox.AVOID_SCROLL;
+    int keyboardAvoidanceDuration = 200;
+    // With lazy views a box only has an EditText while it is shown or focused. Hidden boxes keep their text, style
+    // and rect and release the view once they stayed hidden for lazyViewReleaseDelay ms.
+    boolean lazyViews = false;
+    int lazyViewReleaseDelay = 1000;
+
+    // Box whose EditText currently has focus, maintained by the focus change listener.
+    EditBox focusedBox = null;
+    // Last box that had focus, receives KeyboardHeightChanged.
+    EditBox keyboardOwner = null;
+    // Offset in pixels currently applied for the keyboard, see EditBox.applyKeyboardOffset.
+    int keyboardOffset = 0;
+
+    private final KeyboardMetrics.Listener keyboardListener = new KeyboardMetrics.Listener() {
+        @Override
+        public void onKeyboardHeightChanged(int height) {
+            // The first time the keyboard shows its height is unknown when the box is placed, so place it again.
+            if (focusedBox != null && height > 0)
+                focusedBox.adjustForKeyboard();
+            // Hide usually arrives after the box lost focus, so it goes to the box that opened the keyboard.
+            if (keyboardOwner != null) {
+                JSONObject json = new JSONObject();
+                try {
+                    json.put("msg", MSG_KEYBOARD_HEIGHT_CHANGED);
+                    json.put("height", height);
+                } catch (JSONException e) {
+                }
+                keyboardOwner.SendJsonToUnity(json);
+            }
+        }
+    };
+
+    PluginHost(Activity activity) {
+        this.activity = activity;
+    }
+
+    // Adds the plugin layout to the activity's views. Runs on the UI thread before any message is applied.
+    void attach() {
+        rootView = activity.findViewById(android.R.id.content);
+        View topMostView = getLeafView(rootView);
+        topViewGroup = (ViewGroup) topMostView.getParent();
+        mainLayout = new RelativeLayout(activity);
+        RelativeLayout.LayoutParams rlp = new RelativeLayout.LayoutParams(
+                RelativeLayout.LayoutParams.MATCH_PARENT,
+                RelativeLayout.LayoutParams.MATCH_PARENT);
+        topViewGroup.addView(mainLayout, rlp);
+
+        rootView.setOnSystemUiVisibilityChangeListener
+                (new View.OnSystemUiVisibilityChangeListener() {
+                    @Override
+                    public void onSystemUiVisibilityChange(int visibility) {
+                        int systemUiVisibilitySettings =
+                                View.SYSTEM_UI_FLAG_LAYOUT_STABLE
+                                        | View.SYSTEM_UI_FLAG_LAYOUT_HIDE_NAVIGATION
+                                        | View.SYSTEM_UI_FLAG_LAYOUT_FULLSCREEN
+                                        | View.SYSTEM_UI_FLAG_HIDE_NAVIGATION
+                                        | View.SYSTEM_UI_FLAG_FULLSCREEN
+                                        | View.SYSTEM_UI_FLAG_IMMERSIVE_STICKY;
+                        rootView.setSystemUiVisibility(systemUiVisibilitySettings);
+                    }
+                });
+        keyboardMetrics.attach(rootView, mainLayout, keyboardListener);
+    }
+
+    private static View getLeafView(View view) {
+        if (view instanceof ViewGroup) {
+            ViewGroup vg = (ViewGroup) view;
+            for (int i = 0; i < vg.getChildCount(); ++i) {
+                View childView = vg.getChildAt(i);
+                View result = getLeafView(childView);
+                if (result != null)
+                    return result;
+            }
+            return null;
+        } else {
+            Log.i(NativeEditPlugin.LOG_TAG, "Found leaf view");
+            return view;
+        }
+    }
+
+    EditBox getBox(int id) {
+        return editBoxMap.get(id);
+    }
+
+    void addBox(int id, EditBox box) {
+        editBoxMap.append(id, box);
+    }
+
+    void removeBox(int id) {
+        editBoxMap.remove(id);
+    }
+
+    int boxCount() {
+        return editBoxMap.size();
+    }
+
+    EditBox boxAt(int index) {
+        return editBoxMap.valueAt(index);
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    EditBox.State getState(int id) {
+        StateMirror mirror = stateMap.get(id);
+        return mirror != null ? mirror.state() : null;
+    }
+
+    SharedTextBuffer getSharedText(int id) {
+        return sharedTextMap.get(id);
+    }
+
+    InputMethodManager getInputMethodManager() {
+        if (inputMethodManager == null)
+            inputMethodManager = (InputMethodManager) activity.getSystemService(Activity.INPUT_METHOD_SERVICE);
+        return inputMethodManager;
+    }
+
+    // Removes every box and detaches everything registered on the activity's views.
+    void close() {
+        if (closed)
+            return;
+        closed = true;
+
+        // Remove unregisters the box from editBoxMap, so always take the last one.
+        while (editBoxMap.size() > 0)
+            editBoxMap.valueAt(editBoxMap.size() - 1).Remove();
+        focusedBox = null;
+        keyboardOwner = null;
+        stateMap.clear();
+        sharedTextMap.clear();
+
+        keyboardMetrics.detach();
+        rootView.setOnSystemUiVisibilityChangeListener(null);
+        rootView.animate().cancel();
+        rootView.setTranslationY(0);
+        rootView.setScrollY(0);
+        mainLayout.setOnTouchListener(null);
+        topViewGroup.removeView(mainLayout);
+        inputMethodManager = null;
+    }
+}
@@ -0,0 +1,77 @@
+package com.bkmin.android;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// Direct buffer holding the current text of a box as UTF-16LE, shared with Unity so large texts are not copied
+// through UnitySendMessage. Layout: int32 version, int32 length in chars, then the chars.
+//
+// The UI thread is the only writer. The version is odd while a write is in progress (a seqlock): readers take the
+// version, copy the chars, and retry if the version was odd or changed in between. The buffer is plain memory, so
+// on weakly ordered CPUs both sides need fences around the chars:
+//   writer: odd version, fence, length and chars, fence, even version
+//   reader: version, fence, length and chars, fence, version again
+// A reader in C# reading the buffer's address does the same with Thread.MemoryBarrier() as the fence.
+final class SharedTextBuffer {
+    static final int VERSION_OFFSET = 0;
+    static final int LENGTH_OFFSET = 4;
+    static final int HEADER_SIZE = 8;
+    private static final int MIN_CAPACITY = 256;
+
+    // Written then read by fence(). No access moves after a volatile store or before a volatile load, and volatile
+    // accesses stay in order, so the pair keeps the buffer accesses on either side apart.
+    private static volatile int fenceField;
+
+    private volatile ByteBuffer buffer;
+    private int version = 0;
+    // Volatile store after each write, so the chars are visible before the even version is observed.
+    private volatile int publishedVersion = 0;
+
+    SharedTextBuffer() {
+        buffer = allocate(MIN_CAPACITY);
+    }
+
+    ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    int getVersion() {
+        return publishedVersion;
+    }
+
+    // Writes text into the buffer. Returns true when the buffer had to be reallocated, in which case
+    // Unity has to fetch it again.
+    boolean write(CharSequence text) {
+        int length = text.length();
+        boolean reallocated = false;
+        ByteBuffer buf = buffer;
+        if (length > (buf.capacity() - HEADER_SIZE) / 2) {
+            buf = allocate(Math.max(length + length / 2, MIN_CAPACITY));
+            reallocated = true;
+        }
+
+        buf.putInt(VERSION_OFFSET, ++version);
+        fence();
+        for (int i = 0; i < length; i++)
+            buf.putChar(HEADER_SIZE + i * 2, text.charAt(i));
+        buf.putInt(LENGTH_OFFSET, length);
+        fence();
+        buf.putInt(VERSION_OFFSET, ++version);
+
+        if (reallocated)
+            buffer = buf;
+        publishedVersion = version;
+        return reallocated;
+    }
+
+    // The seqlock fence of the writer, and of readers on the JVM.
+    @SuppressWarnings("unused")
+    static void fence() {
+        fenceField = 0;
+        int read = fenceField;
+    }
+
+    private static ByteBuffer allocate(int chars) {
+        return ByteBuffer.allocateDirect(HEADER_SIZE + chars * 2).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,156 @@
+package com.bkmin.android;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Text, selection and focus of one box as Unity's thread reads them through GetEditBoxState.
+// The UI thread applies every edit to a gap buffer, which costs what the edit does, and only moves the cursor
+// on a selection change. The String and the State Unity gets are built on its first read after a change and
+// kept until the next one, so typing and moving the cursor allocate nothing however long the text is.
+//
+// The UI thread is the only writer and takes no lock, so copying a long text never holds up a keystroke. Like
+// SharedTextBuffer it is a seqlock: the version is odd while a change is in progress, and a reader copies the
+// buffer, then retries if the version was odd or changed in between.
+final class StateMirror {
+    private static final int MIN_CAPACITY = 64;
+
+    // The text is chars[0, gapStart) followed by chars[gapEnd, chars.length).
+    private char[] chars = new char[MIN_CAPACITY];
+    private int gapStart = 0;
+    private int gapEnd = MIN_CAPACITY;
+    private int selectionStart, selectionEnd;
+    private boolean focused;
+    // Text changes so far, so a selection change keeps the text already built.
+    private int textChanges = 0;
+    private int writes = 0;
+    private volatile int version = 0;
+    // Last State built by a reader, null before the first read.
+    private volatile Snapshot snapshot;
+
+    // SetRect updates of the box, counted on the UI thread and read through GetRectUpdateStats.
+    final AtomicLong rectUpdatesApplied = new AtomicLong();
+    final AtomicLong rectUpdatesSkipped = new AtomicLong();
+
+    private static final class Snapshot {
+        final int version;
+        final int textChanges;
+        final EditBox.State state;
+
+        Snapshot(int version, int textChanges, EditBox.State state) {
+            this.version = version;
+            this.textChanges = textChanges;
+            this.state = state;
+        }
+    }
+
+    // UI thread only.
+    int length() {
+        return chars.length - (gapEnd - gapStart);
+    }
+
+    // Replaces [start, end) of the text by source[sourceStart, sourceEnd), as a TextWatcher reports it.
+    void replace(int start, int end, CharSequence source, int sourceStart, int sourceEnd) {
+        int count = sourceEnd - sourceStart;
+        if (start == end && count == 0)
+            return;
+        beginWrite();
+        moveGap(end);
+        gapStart = start;
+        ensureGap(count);
+        for (int i = sourceStart; i < sourceEnd; i++)
+            chars[gapStart++] = source.charAt(i);
+        textChanges++;
+        endWrite();
+    }
+
+    void set(CharSequence source) {
+        replace(0, length(), source, 0, source.length());
+    }
+
+    void setSelection(int start, int end, boolean isFocused) {
+        if (start == selectionStart && end == selectionEnd && isFocused == focused)
+            return;
+        beginWrite();
+        selectionStart = start;
+        selectionEnd = end;
+        focused = isFocused;
+        endWrite();
+    }
+
+    String text() {
+        return state().text;
+    }
+
+    EditBox.State state() {
+        Snapshot last = snapshot;
+        while (true) {
+            int before = version;
+            if (last != null && last.version == before)
+                return last.state;
+            if ((before & 1) != 0) {
+                Thread.yield();
+                continue;
+            }
+            int changes = textChanges;
+            String text = last != null && last.textChanges == changes ? last.state.text : copyText();
+            int start = selectionStart;
+            int end = selectionEnd;
+            boolean isFocused = focused;
+            SharedTextBuffer.fence();
+            if (text == null || version != before)
+                continue;
+            last = new Snapshot(before, changes, new EditBox.State(text, start, end, isFocused));
+            snapshot = last;
+            return last.state;
+        }
+    }
+
+    // Returns null if a write in progress left the gap out of the array's bounds, the version check then fails.
+    private String copyText() {
+        char[] buf = chars;
+        int start = gapStart;
+        int end = gapEnd;
+        if (start < 0 || start > end || end > buf.length)
+            return null;
+        int tail = buf.length - end;
+        char[] copy = new char[start + tail];
+        System.arraycopy(buf, 0, copy, 0, start);
+        System.arraycopy(buf, end, copy, start, tail);
+        return new String(copy);
+    }
+
+    private void beginWrite() {
+        version = ++writes;
+        SharedTextBuffer.fence();
+    }
+
+    private void endWrite() {
+        version = ++writes;
+    }
+
+    private void moveGap(int pos) {
+        if (pos < gapStart) {
+            int n = gapStart - pos;
+            System.arraycopy(chars, pos, chars, gapEnd - n, n);
+            gapStart = pos;
+            gapEnd -= n;
+        } else if (pos > gapStart) {
+            int n = pos - gapStart;
+            System.arraycopy(chars, gapEnd, chars, gapStart, n);
+            gapStart = pos;
+            gapEnd += n;
+        }
+    }
+
+    private void ensureGap(int count) {
+        if (gapEnd - gapStart >= count)
+            return;
+        int length = chars.length - (gapEnd - gapStart);
+        int capacity = Math.max(Math.max(MIN_CAPACITY, chars.length * 2), length + count);
+        char[] grown = new char[capacity];
+        int tail = chars.length - gapEnd;
+        System.arraycopy(chars, 0, grown, 0, gapStart);
+        System.arraycopy(chars, gapEnd, grown, capacity - tail, tail);
+        gapEnd = capacity - tail;
+        chars = grown;
+    }
+}
@@ -0,0 +1,244 @@
+package com.bkmin.android;
+
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+// Read-only dictionary answering prefix queries, case-insensitively, for autocomplete.
+// Entries are sorted and front-coded in blocks: each entry stores how many chars it shares with the previous one
+// and the rest, and every BLOCK_SIZE-th entry is stored whole so a query binary searches the block heads and
+// decodes one block forward. Everything lives in one char array, a 200k name dictionary takes a few MB.
+//
+// Indexes are loaded and queried on a single worker thread, so loading and lookups never run on the UI thread and
+// a query posted after a load always sees it.
+final class SuggestionIndex {
+    private static final int BLOCK_SIZE = 16;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    // Case-insensitive, ties broken by case so duplicates end up next to each other.
+    private static final Comparator<String> ORDER = new Comparator<String>() {
+        @Override
+        public int compare(String a, String b) {
+            int c = String.CASE_INSENSITIVE_ORDER.compare(a, b);
+            return c != 0 ? c : a.compareTo(b);
+        }
+    };
+
+    private static final ConcurrentHashMap<Integer, SuggestionIndex> indexes = new ConcurrentHashMap<>();
+    private static ExecutorService worker = null;
+    // Bumped by clear(), so a load that was still queued or running at that point is dropped.
+    private static int generation = 0;
+
+    // Per entry: shared prefix length, suffix length, suffix chars.
+    private final char[] data;
+    // Offset in data of every BLOCK_SIZE-th entry.
+    private final int[] blockOffsets;
+    private final int size;
+    // Decoding buffer, only used on the worker thread.
+    private char[] entry = new char[64];
+
+    private SuggestionIndex(char[] data, int[] blockOffsets, int size) {
+        this.data = data;
+        this.blockOffsets = blockOffsets;
+        this.size = size;
+    }
+
+    static synchronized void post(Runnable task) {
+        if (worker == null) {
+            worker = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "NativeEditSuggestions");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        worker.execute(task);
+    }
+
+    // Loads a UTF-8 file with one entry per line. Runs on the worker, a failure is logged.
+    static void load(final int indexId, final String path) {
+        final int loadGeneration = generation();
+        post(new Runnable() {
+            @Override
+            public void run() {
+                try (InputStream in = new FileInputStream(path)) {
+                    publish(indexId, read(in), loadGeneration);
+                } catch (IOException e) {
+                    Log.e(NativeEditPlugin.LOG_TAG, "Failed to load suggestion index " + indexId + " : " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    // Same as load, from UTF-8 text already in memory.
+    static void load(final int indexId, final byte[] utf8Lines) {
+        final int loadGeneration = generation();
+        post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    publish(indexId, read(new ByteArrayInputStream(utf8Lines)), loadGeneration);
+                } catch (IOException e) {
+                    Log.e(NativeEditPlugin.LOG_TAG, "Failed to load suggestion index " + indexId + " : " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    static SuggestionIndex get(int indexId) {
+        return indexes.get(indexId);
+    }
+
+    static synchronized void clear() {
+        generation++;
+        indexes.clear();
+    }
+
+    private static synchronized int generation() {
+        return generation;
+    }
+
+    private static synchronized void publish(int indexId, SuggestionIndex index, int loadGeneration) {
+        if (loadGeneration == generation)
+            indexes.put(indexId, index);
+    }
+
+    static SuggestionIndex read(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, UTF8));
+        ArrayList<String> entries = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            // Lengths are stored as chars.
+            if (!line.isEmpty() && line.length() <= Character.MAX_VALUE)
+                entries.add(line);
+        }
+        return build(entries);
+    }
+
+    static SuggestionIndex build(ArrayList<String> entries) {
+        Collections.sort(entries, ORDER);
+
+        int chars = 0;
+        for (String e : entries)
+            chars += e.length() + 2;
+        char[] data = new char[chars];
+        int[] blockOffsets = new int[(entries.size() + BLOCK_SIZE - 1) / BLOCK_SIZE];
+        int pos = 0;
+        int count = 0;
+        String prev = null;
+        for (String e : entries) {
+            if (e.equals(prev))
+                continue;
+            int shared = 0;
+            if (count % BLOCK_SIZE == 0) {
+                blockOffsets[count / BLOCK_SIZE] = pos;
+            } else {
+                int max = Math.min(prev.length(), e.length());
+                while (shared < max && prev.charAt(shared) == e.charAt(shared))
+                    shared++;
+            }
+            data[pos++] = (char) shared;
+            data[pos++] = (char) (e.length() - shared);
+            e.getChars(shared, e.length(), data, pos);
+            pos += e.length() - shared;
+            prev = e;
+            count++;
+        }
+        int blocks = (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        char[] trimmed = new char[pos];
+        System.arraycopy(data, 0, trimmed, 0, pos);
+        int[] trimmedBlocks = new int[blocks];
+        System.arraycopy(blockOffsets, 0, trimmedBlocks, 0, blocks);
+        return new SuggestionIndex(trimmed, trimmedBlocks, count);
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Up to maxResults entries starting with prefix, in dictionary order. Only call it on the worker thread.
+    ArrayList<String> lookup(String prefix, int maxResults) {
+        if (size == 0 || maxResults <= 0)
+            return new ArrayList<String>();
+        ArrayList<String> results = new ArrayList<>(maxResults);
+
+        // Last block whose head sorts before the prefix, matches can start anywhere after its head.
+        int lo = 0;
+        int hi = blockOffsets.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            int offset = blockOffsets[mid];
+            if (compare(data, offset + 2, data[offset + 1], prefix) < 0)
+                lo = mid;
+            else
+                hi = mid - 1;
+        }
+
+        int pos = blockOffsets[lo];
+        int length = 0;
+        for (int i = lo * BLOCK_SIZE; i < size; i++) {
+            int shared = data[pos];
+            int suffix = data[pos + 1];
+            length = shared + suffix;
+            if (length > entry.length) {
+                char[] grown = new char[Math.max(length, entry.length * 2)];
+                System.arraycopy(entry, 0, grown, 0, shared);
+                entry = grown;
+            }
+            System.arraycopy(data, pos + 2, entry, shared, suffix);
+            pos += 2 + suffix;
+
+            int c = compare(entry, 0, length, prefix);
+            if (c < 0)
+                continue;
+            if (c > 0 && !startsWith(entry, length, prefix))
+                break;
+            results.add(new String(entry, 0, length));
+            if (results.size() == maxResults)
+                break;
+        }
+        return results;
+    }
+
+    // String.CASE_INSENSITIVE_ORDER of chars[offset, offset + length) against s.
+    private static int compare(char[] chars, int offset, int length, String s) {
+        int n = Math.min(length, s.length());
+        for (int i = 0; i < n; i++) {
+            char a = fold(chars[offset + i]);
+            char b = fold(s.charAt(i));
+            if (a != b)
+                return a - b;
+        }
+        return length - s.length();
+    }
+
+    private static boolean startsWith(char[] chars, int length, String prefix) {
+        if (length < prefix.length())
+            return false;
+        for (int i = 0; i < prefix.length(); i++) {
+            if (fold(chars[i]) != fold(prefix.charAt(i)))
+                return false;
+        }
+        return true;
+    }
+
+    // The folding String.CASE_INSENSITIVE_ORDER compares with.
+    private static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+}
@@ -0,0 +1,82 @@
+package com.bkmin.android;
+
+import android.content.Context;
+import android.graphics.Typeface;
+import android.util.Log;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// LRU cache of typefaces keyed by the font string Unity sends with CreateEdit.
+// The key is either a font family name, or a path to a font file: an absolute file path,
+// a path inside the APK assets, or a StreamingAssets url such as "jar:file:///data/app/base.apk!/assets/Fonts/a.ttf".
+final class TypefaceCache {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final String ASSETS_MARKER = "!/assets/";
+
+    private static int capacity = DEFAULT_CAPACITY;
+    private static final LinkedHashMap<String, Typeface> cache = new LinkedHashMap<String, Typeface>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Typeface> eldest) {
+            return size() > capacity;
+        }
+    };
+
+    private static long hits = 0;
+    private static long misses = 0;
+
+    private TypefaceCache() {
+    }
+
+    static synchronized void setCapacity(int newCapacity) {
+        capacity = Math.max(1, newCapacity);
+        while (cache.size() > capacity)
+            cache.remove(cache.keySet().iterator().next());
+    }
+
+    // Returns null if the font could not be loaded. A failed load is cached as null too, so a missing font file
+    // is only read and logged once, not on every CreateEdit that names it.
+    static synchronized Typeface get(Context context, String font) {
+        Typeface tf = cache.get(font);
+        if (tf != null || cache.containsKey(font)) {
+            hits++;
+            return tf;
+        }
+        misses++;
+        tf = load(context, font);
+        cache.put(font, tf);
+        return tf;
+    }
+
+    static synchronized void clear() {
+        cache.clear();
+    }
+
+    static synchronized String getStats() {
+        return String.format("{\"hits\":%d,\"misses\":%d,\"cached\":%d,\"capacity\":%d}", hits, misses, cache.size(), capacity);
+    }
+
+    private static boolean isFontFile(String font) {
+        String lower = font.toLowerCase();
+        return lower.endsWith(".ttf") || lower.endsWith(".otf") || lower.endsWith(".ttc");
+    }
+
+    private static Typeface load(Context context, String font) {
+        if (!isFontFile(font))
+            return Typeface.create(font, Typeface.NORMAL);
+
+        try {
+            int assetsPos = font.indexOf(ASSETS_MARKER);
+            if (assetsPos >= 0)
+                return Typeface.createFromAsset(context.getAssets(), font.substring(assetsPos + ASSETS_MARKER.length()));
+            if (font.startsWith("file://"))
+                return Typeface.createFromFile(font.substring("file://".length()));
+            if (font.startsWith("/"))
+                return Typeface.createFromFile(font);
+            return Typeface.createFromAsset(context.getAssets(), font);
+        } catch (RuntimeException e) {
+            Log.e(NativeEditPlugin.LOG_TAG, String.format("Load font %s error %s", font, e.getMessage()));
+            return null;
+        }
+    }
+}